@@ -2,13 +2,30 @@ package com;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import javax.persistence.EntityManager;
 import javax.ws.rs.ApplicationPath;
 import javax.ws.rs.core.Application;
 
+import com.json.JsonProvider;
+import com.metrics.MetricsFilter;
+import com.metrics.RequestMetrics;
+import com.metrics.UnhandledExceptionMapper;
+import com.qualifier.Resource;
+import com.qualifier.SchemaMigrator;
+import com.security.AuthenticationFilter;
+import com.security.RejectedTokenCache;
+import com.security.RevocationSet;
+import com.security.TokenCache;
+import com.security.TokenExpiryScheduler;
+import com.security.TokenSigner;
 import com.webservice.EmployeeService;
+import com.webservice.MetricsService;
+import com.webservice.ReportService;
 import com.webservice.TimesheetService;
 import com.webservice.TokenService;
+import com.webservice.WeekCalendar;
 
 /**
  * Base REST API class that extends javax application.
@@ -17,15 +34,67 @@ import com.webservice.TokenService;
  */
 @ApplicationPath("/v1")
 public class App extends Application {
+    private static final int MAX_CACHED_TOKENS = 10000;
+
+    private static final long TOKEN_CACHE_TTL = TimeUnit.MINUTES.toMillis(5);
+
+    private static final int MAX_REJECTED_TOKENS = 10000;
+
+    private static final long REJECTED_TOKEN_TTL =
+            TimeUnit.MINUTES.toMillis(1);
+
+    private static final String TOKEN_SECRET_PROPERTY =
+            "com.security.tokenSecret";
+
+    private static final long TOKEN_EXPIRY_TICK =
+            TimeUnit.SECONDS.toMillis(1);
+
+    private static final int TOKEN_EXPIRY_WHEEL_SIZE = 3600;
+
+    private static final int FIRST_CALENDAR_YEAR = 2000;
+
+    private static final int LAST_CALENDAR_YEAR = 2099;
+
     private Set<Object> singletons = new HashSet<Object>();
 
     /**
      * constructor, initialize REST services.
      */
     public App() {
-        singletons.add(new TokenService());
-        singletons.add(new EmployeeService());
-        singletons.add(new TimesheetService());
+        new SchemaMigrator().migrate();
+        TokenCache tokenCache =
+                new TokenCache(MAX_CACHED_TOKENS, TOKEN_CACHE_TTL);
+        TokenSigner tokenSigner = null;
+        RevocationSet revocationSet = new RevocationSet();
+        TokenExpiryScheduler expiryScheduler = new TokenExpiryScheduler(
+                tokenCache, TOKEN_EXPIRY_TICK, TOKEN_EXPIRY_WHEEL_SIZE);
+        String tokenSecret = System.getProperty(TOKEN_SECRET_PROPERTY);
+        EntityManager em = Resource.createEntityManager();
+        try {
+            if (tokenSecret != null && !tokenSecret.isEmpty()) {
+                tokenSigner = new TokenSigner(tokenSecret);
+                revocationSet.reload(em);
+            }
+            expiryScheduler.reload(em);
+        } finally {
+            em.close();
+        }
+        expiryScheduler.start();
+        RequestMetrics metrics = new RequestMetrics();
+        singletons.add(new MetricsFilter(metrics));
+        singletons.add(new UnhandledExceptionMapper());
+        singletons.add(new MetricsService(metrics));
+        singletons.add(new JsonProvider());
+        singletons.add(new AuthenticationFilter(tokenCache, tokenSigner,
+                revocationSet, new RejectedTokenCache(
+                        MAX_REJECTED_TOKENS, REJECTED_TOKEN_TTL)));
+        singletons.add(new TokenService(tokenCache, tokenSigner,
+                revocationSet, expiryScheduler));
+        singletons.add(new EmployeeService(tokenCache, revocationSet));
+        WeekCalendar weekCalendar =
+                new WeekCalendar(FIRST_CALENDAR_YEAR, LAST_CALENDAR_YEAR);
+        singletons.add(new TimesheetService(weekCalendar));
+        singletons.add(new ReportService(weekCalendar));
 
     }
 
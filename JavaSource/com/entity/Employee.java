@@ -5,6 +5,7 @@ import java.sql.Date;
 
 import javax.ejb.TransactionManagement;
 import javax.ejb.TransactionManagementType;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -15,8 +16,10 @@ import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.json.JsonCodec;
 
 /**
  * The Persistent class for the Employee database table.
@@ -25,6 +28,8 @@ import com.google.gson.GsonBuilder;
  */
 @XmlRootElement(name = "employee")
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "Employee")
 @TransactionManagement(TransactionManagementType.BEAN)
 public class Employee implements Serializable {
@@ -203,12 +208,7 @@ public class Employee implements Serializable {
 
     @Override
     public String toString() {
-        Gson gson = new GsonBuilder()
-                .setPrettyPrinting()
-                .disableHtmlEscaping()
-                .create();
-        String json = gson.toJson(this);
-        return json + "\n";
+        return JsonCodec.GSON.toJson(this);
     }
 
 }
@@ -10,13 +10,18 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
+import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
 import javax.persistence.Table;
-import javax.persistence.Transient;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
+import org.hibernate.annotations.BatchSize;
+
 /**
  * Timesheet model.
  * @author Sunguk Ham
@@ -30,6 +35,9 @@ public class Timesheet implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /** Number of timesheets whose rows are loaded in one IN query. */
+    private static final int ROW_BATCH_SIZE = 50;
+
     @Id
     @Column(name = "timesheetid")
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -44,7 +52,13 @@ public class Timesheet implements Serializable {
     @Column(name = "startweek")
     private Date startWeek;
 
-    @Transient
+    @Column(name = "yearweek")
+    private Integer yearWeek;
+
+    @OneToMany(fetch = FetchType.LAZY)
+    @JoinColumn(name = "timesheetid", insertable = false, updatable = false)
+    @OrderBy("timesheetRowId")
+    @BatchSize(size = ROW_BATCH_SIZE)
     private List<TimesheetRow> timesheetRows;
 
     /**
@@ -122,6 +136,23 @@ public class Timesheet implements Serializable {
         this.startWeek = startWeek;
     }
 
+    /**
+     * get year week key, year * 100 + week number.
+     * @return year week key
+     */
+    @XmlElement(name = "yearWeek")
+    public Integer getYearWeek() {
+        return yearWeek;
+    }
+
+    /**
+     * set year week key.
+     * @param yearWeek year * 100 + week number
+     */
+    public void setYearWeek(Integer yearWeek) {
+        this.yearWeek = yearWeek;
+    }
+
     /**
      * timesheetRows getter.
      * @return timesheetRows
@@ -1,18 +1,28 @@
 package com.entity;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Date;
+import java.util.UUID;
 
 import javax.ejb.TransactionManagement;
 import javax.ejb.TransactionManagementType;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /**
  * Token object.
  * @author Cameron
@@ -21,6 +31,8 @@ import javax.xml.bind.annotation.XmlRootElement;
  */
 @XmlRootElement(name = "token")
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "Token")
 @TransactionManagement(TransactionManagementType.BEAN)
 public class Token implements Serializable {
@@ -28,7 +40,9 @@ public class Token implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @Column(name = "token")
+    @Column(name = "tokenkey", columnDefinition = "binary(16)")
+    private UUID key;
+    @Transient
     private String token;
     @Column(name = "employeeid")
     private Long employeeId;
@@ -51,8 +65,35 @@ public class Token implements Serializable {
     }
 
     /**
-     * token getter.
-     * @return token
+     * compute the key a token string is stored under: the first 128 bits
+     * of its SHA-256 digest. Only the key is stored, so the token table
+     * holds fixed width keys and no usable bearer tokens.
+     * @param token token string
+     * @return key
+     */
+    public static UUID keyOf(String token) {
+        try {
+            ByteBuffer digest = ByteBuffer.wrap(
+                    MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8)));
+            return new UUID(digest.getLong(), digest.getLong());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * key getter.
+     * @return key
+     */
+    public UUID getKey() {
+        return key;
+    }
+
+    /**
+     * token getter, only known for a token issued or read in the current
+     * request.
+     * @return token, or null if loaded from the database
      */
     @XmlAttribute
     public String getToken() {
@@ -60,11 +101,12 @@ public class Token implements Serializable {
     }
 
     /**
-     * token setter.
+     * token setter, which also sets the key.
      * @param token to be set
      */
     public void setToken(String token) {
         this.token = token;
+        this.key = token == null ? null : keyOf(token);
     }
 
     /**
@@ -0,0 +1,26 @@
+package com.json;
+
+import java.io.IOException;
+import java.sql.Date;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes dates as epoch milliseconds.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+final class DateAdapter extends TypeAdapter<Date> {
+
+    @Override
+    public void write(JsonWriter out, Date value) throws IOException {
+        JsonCodec.writeDate(out, value);
+    }
+
+    @Override
+    public Date read(JsonReader in) throws IOException {
+        return JsonCodec.readDate(in);
+    }
+}
@@ -0,0 +1,68 @@
+package com.json;
+
+import java.io.IOException;
+
+import com.entity.Employee;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes an employee, with the field names of its JAXB
+ * annotations, as clients have always seen them.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+final class EmployeeAdapter extends TypeAdapter<Employee> {
+
+    @Override
+    public void write(JsonWriter out, Employee employee) throws IOException {
+        out.beginObject();
+        out.name("employeeId").value(employee.getEmployeeId());
+        out.name("firstName").value(employee.getFirstName());
+        out.name("lastName").value(employee.getLastName());
+        out.name("userName").value(employee.getUserName());
+        out.name("password").value(employee.getPassword());
+        out.name("createdDate");
+        JsonCodec.writeDate(out, employee.getCreatedDate());
+        out.name("isAdmin").value(employee.isAdmin());
+        out.endObject();
+    }
+
+    @Override
+    public Employee read(JsonReader in) throws IOException {
+        Employee employee = new Employee();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+            case "employeeId":
+                employee.setEmployeeId(JsonCodec.readLong(in));
+                break;
+            case "firstName":
+                employee.setFirstName(JsonCodec.readString(in));
+                break;
+            case "lastName":
+                employee.setLastName(JsonCodec.readString(in));
+                break;
+            case "userName":
+                employee.setUserName(JsonCodec.readString(in));
+                break;
+            case "password":
+                employee.setPassword(JsonCodec.readString(in));
+                break;
+            case "createdDate":
+                employee.setCreatedDate(JsonCodec.readDate(in));
+                break;
+            case "isAdmin":
+            case "admin":
+                employee.setAdmin(JsonCodec.readBoolean(in));
+                break;
+            default:
+                in.skipValue();
+                break;
+            }
+        }
+        in.endObject();
+        return employee;
+    }
+}
@@ -0,0 +1,141 @@
+package com.json;
+
+import java.io.IOException;
+import java.sql.Date;
+
+import com.entity.Employee;
+import com.entity.Timesheet;
+import com.entity.TimesheetRow;
+import com.entity.Token;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * The JSON codec of the application. A Gson instance is thread-safe, so a
+ * single one is built at class load and shared by the JAX-RS provider, the
+ * streamed list responses and the entities.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public final class JsonCodec {
+
+    /**
+     * Shared Gson, with hand-written adapters for the entities so they are
+     * read and written without reflection. Dates are epoch milliseconds.
+     */
+    public static final Gson GSON = createGson();
+
+    /**
+     * Not instantiated.
+     */
+    private JsonCodec() {
+    }
+
+    /**
+     * create the shared Gson.
+     * @return Gson instance
+     */
+    private static Gson createGson() {
+        TimesheetRowAdapter rowAdapter = new TimesheetRowAdapter();
+        return new GsonBuilder()
+                .registerTypeAdapter(Date.class,
+                        new DateAdapter().nullSafe())
+                .registerTypeAdapter(Employee.class,
+                        new EmployeeAdapter().nullSafe())
+                .registerTypeAdapter(Token.class,
+                        new TokenAdapter().nullSafe())
+                .registerTypeAdapter(TimesheetRow.class,
+                        rowAdapter.nullSafe())
+                .registerTypeAdapter(Timesheet.class,
+                        new TimesheetAdapter(rowAdapter).nullSafe())
+                .disableHtmlEscaping()
+                .create();
+    }
+
+    /**
+     * write a date as epoch milliseconds.
+     * @param out writer
+     * @param value date, may be null
+     * @throws IOException if the value cannot be written
+     */
+    static void writeDate(JsonWriter out, Date value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        } else {
+            out.value(value.getTime());
+        }
+    }
+
+    /**
+     * read a date written as epoch milliseconds.
+     * @param in reader
+     * @return date, or null
+     * @throws IOException if the value is not a number
+     */
+    static Date readDate(JsonReader in) throws IOException {
+        Long millis = readLong(in);
+        if (millis == null) {
+            return null;
+        }
+        return new Date(millis);
+    }
+
+    /**
+     * read a nullable long.
+     * @param in reader
+     * @return value, or null
+     * @throws IOException if the value is not a number
+     */
+    static Long readLong(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextLong();
+    }
+
+    /**
+     * read a nullable integer.
+     * @param in reader
+     * @return value, or null
+     * @throws IOException if the value is not a number
+     */
+    static Integer readInteger(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextInt();
+    }
+
+    /**
+     * read a nullable string.
+     * @param in reader
+     * @return value, or null
+     * @throws IOException if the value is not a string
+     */
+    static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    /**
+     * read a boolean, null being false.
+     * @param in reader
+     * @return value
+     * @throws IOException if the value is not a boolean
+     */
+    static boolean readBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return false;
+        }
+        return in.nextBoolean();
+    }
+}
@@ -0,0 +1,91 @@
+package com.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import com.google.gson.JsonParseException;
+
+/**
+ * Reads and writes JSON entities with the shared {@link JsonCodec}.
+ * Strings and streamed outputs are left to the built-in providers, as
+ * they are already serialized.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class JsonProvider
+        implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType,
+            Annotation[] annotations, MediaType mediaType) {
+        return isEntity(type);
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType,
+            Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, String> httpHeaders,
+            InputStream entityStream) throws IOException {
+        try {
+            return JsonCodec.GSON.fromJson(new InputStreamReader(
+                    entityStream, StandardCharsets.UTF_8), genericType);
+        } catch (JsonParseException | NumberFormatException e) {
+            throw new BadRequestException(e);
+        }
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType,
+            Annotation[] annotations, MediaType mediaType) {
+        return isEntity(type);
+    }
+
+    @Override
+    public long getSize(Object t, Class<?> type, Type genericType,
+            Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Object t, Class<?> type, Type genericType,
+            Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders,
+            OutputStream entityStream) throws IOException {
+        Writer writer = new OutputStreamWriter(
+                entityStream, StandardCharsets.UTF_8);
+        // responses of exception mappers come without a generic type
+        JsonCodec.GSON.toJson(t, genericType == null ? type : genericType,
+                writer);
+        writer.flush();
+    }
+
+    /**
+     * tell if a type is serialized by this provider.
+     * @param type entity type
+     * @return true unless a string or a streamed output
+     */
+    private boolean isEntity(Class<?> type) {
+        return !String.class.equals(type)
+                && !StreamingOutput.class.isAssignableFrom(type);
+    }
+}
@@ -0,0 +1,108 @@
+package com.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.entity.Timesheet;
+import com.entity.TimesheetRow;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes a timesheet with its rows.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+final class TimesheetAdapter extends TypeAdapter<Timesheet> {
+
+    private final TypeAdapter<TimesheetRow> rowAdapter;
+
+    /**
+     * Constructor.
+     * @param rowAdapter adapter of the rows
+     */
+    TimesheetAdapter(TypeAdapter<TimesheetRow> rowAdapter) {
+        this.rowAdapter = rowAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, Timesheet timesheet)
+            throws IOException {
+        out.beginObject();
+        out.name("timesheetId").value(timesheet.getTimesheetId());
+        out.name("employeeId").value(timesheet.getEmployeeId());
+        out.name("endWeek");
+        JsonCodec.writeDate(out, timesheet.getEndWeek());
+        out.name("startWeek");
+        JsonCodec.writeDate(out, timesheet.getStartWeek());
+        out.name("yearWeek").value(timesheet.getYearWeek());
+        out.name("timesheetRows");
+        List<TimesheetRow> rows = timesheet.getTimesheetRows();
+        if (rows == null) {
+            out.nullValue();
+        } else {
+            out.beginArray();
+            for (TimesheetRow row : rows) {
+                rowAdapter.write(out, row);
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public Timesheet read(JsonReader in) throws IOException {
+        Timesheet timesheet = new Timesheet();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+            case "timesheetId":
+                timesheet.setTimesheetId(JsonCodec.readLong(in));
+                break;
+            case "employeeId":
+                timesheet.setEmployeeId(JsonCodec.readLong(in));
+                break;
+            case "endWeek":
+                timesheet.setEndWeek(JsonCodec.readDate(in));
+                break;
+            case "startWeek":
+                timesheet.setStartWeek(JsonCodec.readDate(in));
+                break;
+            case "yearWeek":
+                timesheet.setYearWeek(JsonCodec.readInteger(in));
+                break;
+            case "timesheetRows":
+                timesheet.setTimesheetRows(readRows(in));
+                break;
+            default:
+                in.skipValue();
+                break;
+            }
+        }
+        in.endObject();
+        return timesheet;
+    }
+
+    /**
+     * read the rows of a timesheet.
+     * @param in reader
+     * @return rows, or null
+     * @throws IOException if the value is not an array of rows
+     */
+    private List<TimesheetRow> readRows(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<TimesheetRow> rows = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            rows.add(rowAdapter.read(in));
+        }
+        in.endArray();
+        return rows;
+    }
+}
@@ -0,0 +1,85 @@
+package com.json;
+
+import java.io.IOException;
+
+import com.entity.TimesheetRow;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes a timesheet row.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+final class TimesheetRowAdapter extends TypeAdapter<TimesheetRow> {
+
+    @Override
+    public void write(JsonWriter out, TimesheetRow row) throws IOException {
+        out.beginObject();
+        out.name("timesheetRowId").value(row.getTimesheetRowId());
+        out.name("timesheetId").value(row.getTimesheetId());
+        out.name("projectId").value(row.getProjectId());
+        out.name("workPackageId").value(row.getWorkPackageId());
+        out.name("monday").value(row.getMonday());
+        out.name("tuesday").value(row.getTuesday());
+        out.name("wednesday").value(row.getWednesday());
+        out.name("thursday").value(row.getThursday());
+        out.name("friday").value(row.getFriday());
+        out.name("saturday").value(row.getSaturday());
+        out.name("sunday").value(row.getSunday());
+        out.name("notes").value(row.getNotes());
+        out.endObject();
+    }
+
+    @Override
+    public TimesheetRow read(JsonReader in) throws IOException {
+        TimesheetRow row = new TimesheetRow();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+            case "timesheetRowId":
+                row.setTimesheetRowId(JsonCodec.readLong(in));
+                break;
+            case "timesheetId":
+                row.setTimesheetId(JsonCodec.readLong(in));
+                break;
+            case "projectId":
+                row.setProjectId(JsonCodec.readLong(in));
+                break;
+            case "workPackageId":
+                row.setWorkPackageId(JsonCodec.readString(in));
+                break;
+            case "monday":
+                row.setMonday(JsonCodec.readInteger(in));
+                break;
+            case "tuesday":
+                row.setTuesday(JsonCodec.readInteger(in));
+                break;
+            case "wednesday":
+                row.setWednesday(JsonCodec.readInteger(in));
+                break;
+            case "thursday":
+                row.setThursday(JsonCodec.readInteger(in));
+                break;
+            case "friday":
+                row.setFriday(JsonCodec.readInteger(in));
+                break;
+            case "saturday":
+                row.setSaturday(JsonCodec.readInteger(in));
+                break;
+            case "sunday":
+                row.setSunday(JsonCodec.readInteger(in));
+                break;
+            case "notes":
+                row.setNotes(JsonCodec.readString(in));
+                break;
+            default:
+                in.skipValue();
+                break;
+            }
+        }
+        in.endObject();
+        return row;
+    }
+}
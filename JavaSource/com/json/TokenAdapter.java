@@ -0,0 +1,71 @@
+package com.json;
+
+import java.io.IOException;
+
+import com.entity.Token;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads and writes a token, with the field names of its JAXB
+ * annotations, as clients have always seen them.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+final class TokenAdapter extends TypeAdapter<Token> {
+
+    @Override
+    public void write(JsonWriter out, Token token) throws IOException {
+        out.beginObject();
+        out.name("token").value(token.getToken());
+        out.name("employeeId").value(token.getEmployeeId());
+        out.name("dateCreated");
+        JsonCodec.writeDate(out, token.getDateCreated());
+        out.name("expiryDate");
+        JsonCodec.writeDate(out, token.getExpiryDate());
+        out.name("isAdmin").value(token.isAdmin());
+        out.name("userName").value(token.getUsername());
+        out.name("isActive").value(token.isActive());
+        out.endObject();
+    }
+
+    @Override
+    public Token read(JsonReader in) throws IOException {
+        Token token = new Token();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+            case "token":
+                token.setToken(JsonCodec.readString(in));
+                break;
+            case "employeeId":
+                token.setEmployeeId(JsonCodec.readLong(in));
+                break;
+            case "dateCreated":
+                token.setDateCreated(JsonCodec.readDate(in));
+                break;
+            case "expiryDate":
+                token.setExpiryDate(JsonCodec.readDate(in));
+                break;
+            case "isAdmin":
+            case "admin":
+                token.setAdmin(JsonCodec.readBoolean(in));
+                break;
+            case "userName":
+            case "username":
+                token.setUsername(JsonCodec.readString(in));
+                break;
+            case "isActive":
+            case "active":
+                token.setActive(JsonCodec.readBoolean(in));
+                break;
+            default:
+                in.skipValue();
+                break;
+            }
+        }
+        in.endObject();
+        return token;
+    }
+}
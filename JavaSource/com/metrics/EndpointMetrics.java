@@ -0,0 +1,135 @@
+package com.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a single resource method.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+class EndpointMetrics {
+
+    private final Histogram total = new Histogram();
+
+    private final Histogram auth = new Histogram();
+
+    private final Histogram db = new Histogram();
+
+    private final Histogram serialization = new Histogram();
+
+    private final AtomicLong inFlight = new AtomicLong();
+
+    private final Map<Integer, LongAdder> statuses =
+            new ConcurrentSkipListMap<>();
+
+    private final LongAdder statements = new LongAdder();
+
+    private final LongAdder overBudget = new LongAdder();
+
+    private final int queryBudget;
+
+    /**
+     * Constructor.
+     * @param queryBudget maximum statements per request, or -1 if none
+     */
+    EndpointMetrics(int queryBudget) {
+        this.queryBudget = queryBudget;
+    }
+
+    /**
+     * count a request being served.
+     */
+    void begin() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * record a served request.
+     * @param status status code
+     * @param totalNanos latency of the whole request
+     * @param authNanos time spent authenticating
+     * @param dbNanos time spent executing statements
+     * @param statementCount number of statements executed
+     * @param serializationNanos time spent writing the entity
+     */
+    void end(int status, long totalNanos, long authNanos, long dbNanos,
+            long statementCount, long serializationNanos) {
+        inFlight.decrementAndGet();
+        statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        statements.add(statementCount);
+        if (queryBudget >= 0 && statementCount > queryBudget) {
+            overBudget.increment();
+        }
+        total.record(totalNanos);
+        auth.record(authNanos);
+        db.record(dbNanos);
+        serialization.record(serializationNanos);
+    }
+
+    /**
+     * latency of the whole request.
+     * @return histogram
+     */
+    Histogram getTotal() {
+        return total;
+    }
+
+    /**
+     * time spent authenticating.
+     * @return histogram
+     */
+    Histogram getAuth() {
+        return auth;
+    }
+
+    /**
+     * time spent executing statements.
+     * @return histogram
+     */
+    Histogram getDb() {
+        return db;
+    }
+
+    /**
+     * time spent writing the response entity.
+     * @return histogram
+     */
+    Histogram getSerialization() {
+        return serialization;
+    }
+
+    /**
+     * number of requests being served.
+     * @return in flight count
+     */
+    long getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * number of statements executed.
+     * @return statements
+     */
+    long getStatements() {
+        return statements.sum();
+    }
+
+    /**
+     * number of requests over the query budget.
+     * @return requests
+     */
+    long getOverBudget() {
+        return overBudget.sum();
+    }
+
+    /**
+     * responses by status code.
+     * @return counters, ordered by status code
+     */
+    Map<Integer, LongAdder> getStatuses() {
+        return statuses;
+    }
+}
@@ -0,0 +1,78 @@
+package com.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with fixed exponential buckets, from half a
+ * millisecond to ten seconds. Recording only increments a bucket counter
+ * and the sum, so it is cheap enough for every request.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+class Histogram {
+
+    /** Upper bounds of the buckets in seconds, as written. */
+    private static final String[] BOUNDS = {
+        "0.0005", "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05",
+        "0.1", "0.25", "0.5", "1", "2.5", "5", "10",
+    };
+
+    /** Upper bounds of the buckets in nanos. */
+    private static final long[] BOUND_NANOS = new long[BOUNDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUND_NANOS[i] = (long) (Double.parseDouble(BOUNDS[i])
+                    * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    private final LongAdder[] counts = new LongAdder[BOUNDS.length + 1];
+
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * Constructor.
+     */
+    Histogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * record a duration.
+     * @param nanos duration in nanos
+     */
+    void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUND_NANOS.length && nanos > BOUND_NANOS[bucket]) {
+            bucket++;
+        }
+        counts[bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * write the histogram in Prometheus text format.
+     * @param out output
+     * @param name metric name
+     * @param labels labels of the series, without braces
+     */
+    void write(StringBuilder out, String name, String labels) {
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i].sum();
+            String bound = i < BOUNDS.length ? BOUNDS[i] : "+Inf";
+            out.append(name).append("_bucket{").append(labels)
+                    .append(",le=\"").append(bound).append("\"} ")
+                    .append(cumulative).append('\n');
+        }
+        out.append(name).append("_sum{").append(labels).append("} ")
+                .append(sumNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1))
+                .append('\n');
+        out.append(name).append("_count{").append(labels).append("} ")
+                .append(cumulative).append('\n');
+    }
+}
@@ -0,0 +1,142 @@
+package com.metrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.jdbc.Work;
+
+/**
+ * Adds the time spent executing JDBC statements, and their number, to the
+ * request being served on the current thread. Registered on every session
+ * through the hibernate.session.events.auto property. Statements run on
+ * the connection of a session through Session.doWork are not reported to
+ * the listeners, so that work is wrapped with {@link #timed(Work)}.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class JdbcTimingListener extends BaseSessionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Statement time and count of the request on this thread. */
+    private static final ThreadLocal<long[]> REQUEST_NANOS =
+            new ThreadLocal<>();
+
+    private static final int NANOS = 0;
+
+    private static final int COUNT = 1;
+
+    private long statementStart;
+
+    private long batchStart;
+
+    /**
+     * start timing the request on the current thread.
+     */
+    static void startRequest() {
+        REQUEST_NANOS.set(new long[2]);
+    }
+
+    /**
+     * stop timing the request on the current thread.
+     * @return statement time of the request in nanos, then the number of
+     *     statements
+     */
+    static long[] endRequest() {
+        long[] nanos = REQUEST_NANOS.get();
+        REQUEST_NANOS.remove();
+        return nanos == null ? new long[2] : nanos;
+    }
+
+    /**
+     * wrap work done on the connection of a session, so its statements are
+     * added to the request like the ones Hibernate runs. A JDBC batch
+     * counts as one statement, as it does for Hibernate.
+     * @param work work to run with Session.doWork
+     * @return work running on a connection that times its statements
+     */
+    public static Work timed(Work work) {
+        return connection -> work.execute(timed(connection, Connection.class));
+    }
+
+    /**
+     * wrap a connection or a statement created by it, timing the execute
+     * calls of statements.
+     * @param <T> interface type
+     * @param target connection or statement
+     * @param type interface the proxy implements
+     * @return proxy delegating to the target
+     */
+    private static <T> T timed(T target, Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(
+                JdbcTimingListener.class.getClassLoader(),
+                new Class<?>[] {type}, (proxy, method, args) -> {
+                    boolean execute = target instanceof Statement
+                            && method.getName().startsWith("execute");
+                    long start = System.nanoTime();
+                    Object result;
+                    try {
+                        result = method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if (execute) {
+                            add(System.nanoTime() - start);
+                        }
+                    }
+                    if (result instanceof Statement
+                            && Statement.class.isAssignableFrom(
+                                    method.getReturnType())) {
+                        return wrapStatement(result, method.getReturnType());
+                    }
+                    return result;
+                }));
+    }
+
+    /**
+     * wrap a statement returned by a connection, as the type it was
+     * returned as, e.g. PreparedStatement.
+     * @param <T> statement type
+     * @param statement statement
+     * @param type type returned by the connection method
+     * @return proxy delegating to the statement
+     */
+    private static <T> T wrapStatement(Object statement, Class<T> type) {
+        return timed(type.cast(statement), type);
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        add(System.nanoTime() - statementStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        add(System.nanoTime() - batchStart);
+    }
+
+    /**
+     * add a statement to the request on the current thread.
+     * @param nanos statement time in nanos
+     */
+    private static void add(long nanos) {
+        long[] requestNanos = REQUEST_NANOS.get();
+        if (requestNanos != null) {
+            requestNanos[NANOS] += nanos;
+            requestNanos[COUNT]++;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.metrics;
+
+import java.io.IOException;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+/**
+ * Times every request to a resource method, from before authentication
+ * until the response entity is written, and records it in the
+ * {@link RequestMetrics}.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION - 1)
+public class MetricsFilter implements ContainerRequestFilter,
+        ContainerResponseFilter, WriterInterceptor {
+
+    private static final String ENDPOINT = "com.metrics.endpoint";
+
+    private static final String START_NANOS = "com.metrics.startNanos";
+
+    private static final String STATUS = "com.metrics.status";
+
+    private final RequestMetrics metrics;
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    /**
+     * Constructor.
+     * @param metrics registry the requests are recorded in
+     */
+    public MetricsFilter(RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext)
+            throws IOException {
+        QueryBudget budget = resourceInfo.getResourceMethod()
+                .getAnnotation(QueryBudget.class);
+        EndpointMetrics endpoint = metrics.endpoint(
+                resourceInfo.getResourceClass().getSimpleName() + "."
+                + resourceInfo.getResourceMethod().getName(),
+                budget == null ? -1 : budget.value());
+        endpoint.begin();
+        requestContext.setProperty(ENDPOINT, endpoint);
+        requestContext.setProperty(START_NANOS, System.nanoTime());
+        JdbcTimingListener.startRequest();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext,
+            ContainerResponseContext responseContext) throws IOException {
+        if (requestContext.getProperty(START_NANOS) == null) {
+            return;
+        }
+        if (responseContext.hasEntity()) {
+            requestContext.setProperty(STATUS, responseContext.getStatus());
+        } else {
+            end(requestContext.getProperty(ENDPOINT),
+                    requestContext.getProperty(START_NANOS),
+                    requestContext.getProperty(RequestMetrics.AUTH_NANOS),
+                    responseContext.getStatus(), 0);
+            requestContext.removeProperty(START_NANOS);
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context)
+            throws IOException, WebApplicationException {
+        if (context.getProperty(STATUS) == null) {
+            context.proceed();
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            context.proceed();
+        } finally {
+            end(context.getProperty(ENDPOINT),
+                    context.getProperty(START_NANOS),
+                    context.getProperty(RequestMetrics.AUTH_NANOS),
+                    (Integer) context.getProperty(STATUS),
+                    System.nanoTime() - start);
+            context.removeProperty(STATUS);
+        }
+    }
+
+    /**
+     * record a served request.
+     * @param endpoint endpoint metrics property
+     * @param startNanos start time property
+     * @param authNanos authentication time property, null if not secured
+     * @param status status code
+     * @param serializationNanos time spent writing the entity
+     */
+    private void end(Object endpoint, Object startNanos, Object authNanos,
+            int status, long serializationNanos) {
+        long[] db = JdbcTimingListener.endRequest();
+        ((EndpointMetrics) endpoint).end(status,
+                System.nanoTime() - (Long) startNanos,
+                authNanos == null ? 0 : (Long) authNanos,
+                db[0], db[1], serializationNanos);
+    }
+}
@@ -0,0 +1,42 @@
+package com.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maximum number of statements a resource method may execute per request,
+ * through Hibernate or on its connection with
+ * {@link JdbcTimingListener#timed}, including the lookups of a bearer
+ * token missing from the caches. Requests over budget are counted in the
+ * metrics, so an N+1 or a full table load shows up as soon as it ships.
+ * The entities loaded and the transactions begun need the Hibernate
+ * statistics, off in production, so those limits are checked by the tests
+ * against their data only.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface QueryBudget {
+
+    /**
+     * maximum number of statements.
+     * @return statements
+     */
+    int value();
+
+    /**
+     * maximum number of entities loaded, -1 for the lists, whose loads grow
+     * with the data.
+     * @return entity loads
+     */
+    int entityLoads();
+
+    /**
+     * maximum number of transactions begun.
+     * @return transactions
+     */
+    int transactions();
+}
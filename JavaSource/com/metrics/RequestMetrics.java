@@ -0,0 +1,111 @@
+package com.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the metrics of every resource method, written in Prometheus
+ * text format.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class RequestMetrics {
+
+    /**
+     * Request property holding the time spent authenticating the request,
+     * in nanos, set by the authentication filter.
+     */
+    public static final String AUTH_NANOS = "com.metrics.authNanos";
+
+    private static final String DURATION = "http_request_duration_seconds";
+
+    private static final String PHASE = "http_request_phase_seconds";
+
+    private final Map<String, EndpointMetrics> endpoints =
+            new ConcurrentSkipListMap<>();
+
+    /**
+     * get the metrics of a resource method, created on first use.
+     * @param endpoint resource class and method name
+     * @param queryBudget maximum statements per request, or -1 if none
+     * @return metrics
+     */
+    EndpointMetrics endpoint(String endpoint, int queryBudget) {
+        return endpoints.computeIfAbsent(endpoint,
+                e -> new EndpointMetrics(queryBudget));
+    }
+
+    /**
+     * write every metric in Prometheus text format.
+     * @return metrics text
+     */
+    public String write() {
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP ").append(DURATION)
+                .append(" Latency of the requests by resource method.\n");
+        out.append("# TYPE ").append(DURATION).append(" histogram\n");
+        for (Map.Entry<String, EndpointMetrics> e : endpoints.entrySet()) {
+            e.getValue().getTotal().write(out, DURATION, label(e.getKey()));
+        }
+        out.append("# HELP ").append(PHASE).append(" Time spent in auth,")
+                .append(" db and serialization by resource method.\n");
+        out.append("# TYPE ").append(PHASE).append(" histogram\n");
+        for (Map.Entry<String, EndpointMetrics> e : endpoints.entrySet()) {
+            String label = label(e.getKey());
+            e.getValue().getAuth().write(out, PHASE,
+                    label + ",phase=\"auth\"");
+            e.getValue().getDb().write(out, PHASE,
+                    label + ",phase=\"db\"");
+            e.getValue().getSerialization().write(out, PHASE,
+                    label + ",phase=\"serialization\"");
+        }
+        out.append("# HELP http_requests_in_flight")
+                .append(" Requests being served by resource method.\n");
+        out.append("# TYPE http_requests_in_flight gauge\n");
+        for (Map.Entry<String, EndpointMetrics> e : endpoints.entrySet()) {
+            out.append("http_requests_in_flight{").append(label(e.getKey()))
+                    .append("} ").append(e.getValue().getInFlight())
+                    .append('\n');
+        }
+        out.append("# HELP http_responses_total")
+                .append(" Responses by resource method and status code.\n");
+        out.append("# TYPE http_responses_total counter\n");
+        for (Map.Entry<String, EndpointMetrics> e : endpoints.entrySet()) {
+            for (Map.Entry<Integer, LongAdder> status
+                    : e.getValue().getStatuses().entrySet()) {
+                out.append("http_responses_total{").append(label(e.getKey()))
+                        .append(",status=\"").append(status.getKey())
+                        .append("\"} ").append(status.getValue().sum())
+                        .append('\n');
+            }
+        }
+        out.append("# HELP http_request_statements_total")
+                .append(" Statements executed by resource method.\n");
+        out.append("# TYPE http_request_statements_total counter\n");
+        for (Map.Entry<String, EndpointMetrics> e : endpoints.entrySet()) {
+            out.append("http_request_statements_total{")
+                    .append(label(e.getKey())).append("} ")
+                    .append(e.getValue().getStatements()).append('\n');
+        }
+        out.append("# HELP http_requests_over_query_budget_total")
+                .append(" Requests over the query budget of their")
+                .append(" resource method.\n");
+        out.append("# TYPE http_requests_over_query_budget_total counter\n");
+        for (Map.Entry<String, EndpointMetrics> e : endpoints.entrySet()) {
+            out.append("http_requests_over_query_budget_total{")
+                    .append(label(e.getKey())).append("} ")
+                    .append(e.getValue().getOverBudget()).append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * create the endpoint label of a series.
+     * @param endpoint resource class and method name
+     * @return label
+     */
+    private static String label(String endpoint) {
+        return "endpoint=\"" + endpoint + "\"";
+    }
+}
@@ -0,0 +1,43 @@
+package com.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Turns the exceptions no resource method handled into a 500 response.
+ * Without it they are thrown to the container, past the response filters,
+ * and the {@link MetricsFilter} would neither end the request nor count
+ * its status. Web application exceptions keep their own response.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+@Provider
+public class UnhandledExceptionMapper implements ExceptionMapper<Throwable> {
+
+    private static final Logger LOGGER =
+            Logger.getLogger(UnhandledExceptionMapper.class.getName());
+
+    @Override
+    public Response toResponse(Throwable exception) {
+        if (exception instanceof WebApplicationException) {
+            return ((WebApplicationException) exception).getResponse();
+        }
+        LOGGER.log(Level.SEVERE, "Unhandled exception", exception);
+        Map<String, String> responseMap = new HashMap<>();
+        responseMap.put("message",
+                Response.Status.INTERNAL_SERVER_ERROR.toString());
+        responseMap.put("status",
+                Response.Status.INTERNAL_SERVER_ERROR + "");
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(responseMap).build();
+    }
+}
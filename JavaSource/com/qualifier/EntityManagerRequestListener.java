@@ -0,0 +1,24 @@
+package com.qualifier;
+
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Closes the entity manager of a request once the request is done.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+@WebListener
+public class EntityManagerRequestListener implements ServletRequestListener {
+
+    @Override
+    public void requestInitialized(ServletRequestEvent event) {
+        // the entity manager is created lazily on first use
+    }
+
+    @Override
+    public void requestDestroyed(ServletRequestEvent event) {
+        Resource.closeEntityManager();
+    }
+}
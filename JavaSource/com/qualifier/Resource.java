@@ -1,5 +1,10 @@
 package com.qualifier;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
@@ -7,22 +12,124 @@ import javax.ws.rs.Produces;
 
 /**
  * Resource initializes Entity Manager from persistence xml.
+ * Every request gets its own entity manager, which is closed by
+ * {@link EntityManagerRequestListener} when the request ends.
  * @author Sunguk Ham
  * @version 1.0
  */
 public class Resource {
-    private static EntityManagerFactory mgr;
+    private static final ThreadLocal<EntityManager> CURRENT =
+            new ThreadLocal<EntityManager>();
+
+    private static final EntityManager PROXY = (EntityManager) Proxy
+            .newProxyInstance(EntityManager.class.getClassLoader(),
+                    new Class<?>[] {EntityManager.class},
+                    new RequestScopedHandler());
+
+    /**
+     * Not instantiated.
+     */
+    private Resource() {
+    }
 
     /**
      * get Entity Manager from persistence.
+     * The returned entity manager is safe to share between threads, it
+     * delegates to the entity manager of the current request.
      * @return entity manager
      */
     @Produces
     public static EntityManager getEntityManager() {
-        if (mgr == null) {
-            mgr = Persistence.createEntityManagerFactory("assignment3");
+        return PROXY;
+    }
+
+    /**
+     * create a new Entity Manager, which must be closed by the caller.
+     * @return entity manager
+     */
+    public static EntityManager createEntityManager() {
+        return FactoryHolder.FACTORY.createEntityManager();
+    }
+
+    /**
+     * get the Entity Manager Factory of the persistence unit.
+     * @return entity manager factory
+     */
+    public static EntityManagerFactory getEntityManagerFactory() {
+        return FactoryHolder.FACTORY;
+    }
+
+    /**
+     * close the entity manager of the current request, if any.
+     * A transaction left open by the request is rolled back.
+     */
+    public static void closeEntityManager() {
+        EntityManager em = CURRENT.get();
+        if (em == null) {
+            return;
+        }
+        CURRENT.remove();
+        try {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * get the entity manager of the current request, creating it lazily.
+     * @return entity manager
+     */
+    private static EntityManager currentEntityManager() {
+        EntityManager em = CURRENT.get();
+        if (em == null) {
+            em = createEntityManager();
+            CURRENT.set(em);
         }
-        EntityManager em = mgr.createEntityManager();
         return em;
     }
+
+    /**
+     * Holder of the factory, initialized once on first use.
+     */
+    private static final class FactoryHolder {
+        private static final EntityManagerFactory FACTORY =
+                Persistence.createEntityManagerFactory("assignment3");
+    }
+
+    /**
+     * Delegates calls on the shared proxy to the current entity manager.
+     */
+    private static final class RequestScopedHandler
+            implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                closeEntityManager();
+                return null;
+            }
+            if ("isOpen".equals(name) && CURRENT.get() == null) {
+                return true;
+            }
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            if ("toString".equals(name)) {
+                return "Request scoped " + EntityManager.class.getName();
+            }
+            try {
+                return method.invoke(currentEntityManager(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
 }
@@ -0,0 +1,251 @@
+package com.qualifier;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+
+/**
+ * Applies the versioned schema migrations in db/migration at startup.
+ * Migrations are forward only: each one runs once, in order, and is
+ * recorded in the schema_version table. Instances starting together take
+ * turns on a named lock, so a script is never run twice.
+ * MySQL commits DDL statements implicitly, so a script cannot be rolled
+ * back with its version row. The row is written as pending before the
+ * script runs and marked installed after it; a pending row left by a
+ * failed script stops the next startup until the schema is repaired.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class SchemaMigrator {
+
+    /** Migration scripts, in the order they are applied. */
+    private static final String[] MIGRATIONS = {
+        "V1__indexes_and_foreign_keys.sql",
+        "V2__timesheet_year_week.sql",
+        "V3__drop_token_expiry_event.sql",
+        "V4__token_binary_key.sql",
+        "V5__employee_username_unique.sql",
+        "V6__timesheet_yearweek_index.sql",
+    };
+
+    private static final String LOCATION = "db/migration/";
+
+    private static final String CREATE_VERSION_TABLE =
+            "create table if not exists schema_version ("
+            + " version integer primary key,"
+            + " script varchar(256),"
+            + " installedon timestamp default current_timestamp,"
+            + " success boolean not null default 1)";
+
+    private static final String LOCK_NAME = "schema_migration";
+
+    /** Seconds to wait for another instance to finish migrating. */
+    private static final int LOCK_TIMEOUT = 300;
+
+    /**
+     * apply the migrations that are not yet recorded.
+     */
+    public void migrate() {
+        EntityManager em = Resource.createEntityManager();
+        try {
+            em.unwrap(Session.class).doWork(this::migrate);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * apply the migrations that are not yet recorded.
+     * @param connection jdbc connection
+     * @throws SQLException on database error
+     */
+    void migrate(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(true);
+        try {
+            lock(connection);
+            try {
+                createVersionTable(connection);
+                checkNoPending(connection);
+                int current = currentVersion(connection);
+                for (int version = current + 1;
+                        version <= MIGRATIONS.length; version++) {
+                    apply(connection, version, MIGRATIONS[version - 1]);
+                }
+            } finally {
+                unlock(connection);
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * run a migration script between its pending and installed records.
+     * @param connection jdbc connection
+     * @param version version of the script
+     * @param script script name
+     * @throws SQLException on database error
+     */
+    private void apply(Connection connection, int version, String script)
+            throws SQLException {
+        List<String> statements = readStatements(script);
+        try (PreparedStatement ps = connection.prepareStatement(
+                "insert into schema_version (version, script, success)"
+                + " values (?, ?, 0)")) {
+            ps.setInt(1, version);
+            ps.setString(2, script);
+            ps.executeUpdate();
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "update schema_version set success = 1"
+                + " where version = ?")) {
+            ps.setInt(1, version);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * wait for the migration lock, held by at most one instance.
+     * @param connection jdbc connection, which holds the lock
+     * @throws SQLException on database error
+     */
+    private void lock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "select get_lock(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                if (rs.getInt(1) != 1) {
+                    throw new IllegalStateException("Timed out waiting for "
+                            + "another instance to migrate the schema");
+                }
+            }
+        }
+    }
+
+    /**
+     * release the migration lock.
+     * @param connection jdbc connection holding the lock
+     * @throws SQLException on database error
+     */
+    private void unlock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "select release_lock(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        }
+    }
+
+    /**
+     * create the schema_version table, or add the success column to one
+     * created before it existed.
+     * @param connection jdbc connection
+     * @throws SQLException on database error
+     */
+    private void createVersionTable(Connection connection)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_VERSION_TABLE);
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet rs = metaData.getColumns(connection.getCatalog(),
+                    null, "schema_version", "success")) {
+                if (!rs.next()) {
+                    statement.execute("alter table schema_version add column"
+                            + " success boolean not null default 1");
+                }
+            }
+        }
+    }
+
+    /**
+     * fail if a migration did not complete. Its statements may have been
+     * partly applied and committed, so it cannot simply be run again.
+     * @param connection jdbc connection
+     * @throws SQLException on database error
+     */
+    private void checkNoPending(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(
+                        "select version, script from schema_version"
+                        + " where success = 0 order by version")) {
+            if (rs.next()) {
+                throw new IllegalStateException("Migration "
+                        + rs.getString(2) + " did not complete. Repair the"
+                        + " schema, then delete its schema_version row, "
+                        + rs.getInt(1) + ", to run it again");
+            }
+        }
+    }
+
+    /**
+     * get the version of the last applied migration.
+     * @param connection jdbc connection
+     * @return version, 0 if none was applied
+     * @throws SQLException on database error
+     */
+    private int currentVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(
+                        "select max(version) from schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * read the statements of a migration script.
+     * Statements end with a semicolon at the end of a line, and lines
+     * starting with -- are comments.
+     * @param script script name
+     * @return statements
+     */
+    private List<String> readStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        InputStream in = SchemaMigrator.class.getClassLoader()
+                .getResourceAsStream(LOCATION + script);
+        if (in == null) {
+            throw new IllegalStateException("Missing migration " + script);
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            StringBuilder sql = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                sql.append(line).append('\n');
+                if (trimmed.endsWith(";")) {
+                    sql.setLength(sql.lastIndexOf(";"));
+                    statements.add(sql.toString());
+                    sql.setLength(0);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + script, e);
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,178 @@
+package com.security;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Priority;
+import javax.persistence.EntityManager;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+import com.entity.Employee;
+import com.entity.Token;
+import com.metrics.RequestMetrics;
+import com.qualifier.Resource;
+
+/**
+ * Resolves the bearer token of a request once and exposes the employee
+ * as the principal of the request security context.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+@Secured
+@Provider
+@Priority(Priorities.AUTHENTICATION)
+public class AuthenticationFilter implements ContainerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    private final TokenCache tokenCache;
+
+    private final TokenSigner tokenSigner;
+
+    private final RevocationSet revocationSet;
+
+    private final RejectedTokenCache rejectedTokens;
+
+    /**
+     * Constructor.
+     * @param tokenCache cache of resolved tokens
+     * @param tokenSigner signer of stateless tokens, null if disabled
+     * @param revocationSet revoked stateless tokens
+     * @param rejectedTokens recently rejected tokens
+     */
+    public AuthenticationFilter(TokenCache tokenCache,
+            TokenSigner tokenSigner, RevocationSet revocationSet,
+            RejectedTokenCache rejectedTokens) {
+        this.tokenCache = tokenCache;
+        this.tokenSigner = tokenSigner;
+        this.revocationSet = revocationSet;
+        this.rejectedTokens = rejectedTokens;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext)
+            throws IOException {
+        long start = System.nanoTime();
+        authenticate(requestContext);
+        requestContext.setProperty(RequestMetrics.AUTH_NANOS,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * resolve the bearer token of a request and set the security context,
+     * or abort the request.
+     * @param requestContext request context
+     */
+    private void authenticate(ContainerRequestContext requestContext) {
+        String header = requestContext.getHeaderString(
+                HttpHeaders.AUTHORIZATION);
+        if (header == null) {
+            abort(requestContext);
+            return;
+        }
+        String token = header.replace(BEARER, "");
+        EmployeePrincipal principal;
+        if (tokenSigner != null && TokenSigner.isSigned(token)) {
+            principal = tokenSigner.verify(token);
+            if (principal == null
+                    || revocationSet.isRevoked(Token.keyOf(token))) {
+                abort(requestContext);
+                return;
+            }
+        } else {
+            principal = resolve(token);
+            if (principal == null) {
+                abort(requestContext);
+                return;
+            }
+        }
+        requestContext.setSecurityContext(new EmployeeSecurityContext(
+                principal, requestContext.getSecurityContext().isSecure()));
+    }
+
+    /**
+     * resolve a random token through the caches or the database.
+     * A token that fails to resolve is remembered as rejected, so it is
+     * not looked up again until that entry expires.
+     * @param token token string
+     * @return principal, or null if the token is not active
+     */
+    private EmployeePrincipal resolve(String token) {
+        UUID key = Token.keyOf(token);
+        EmployeePrincipal principal = tokenCache.get(key);
+        if (principal == null) {
+            if (rejectedTokens.contains(key)) {
+                return null;
+            }
+            principal = loadPrincipal(key);
+            if (principal == null) {
+                rejectedTokens.add(key);
+            } else {
+                tokenCache.put(key, principal);
+            }
+        }
+        return principal;
+    }
+
+    /**
+     * load the active token and its employee by id, so both lookups are
+     * served by the second level cache when possible.
+     * @param key token key
+     * @return principal, or null if the token is not active
+     */
+    private EmployeePrincipal loadPrincipal(UUID key) {
+        EntityManager em = Resource.createEntityManager();
+        try {
+            Token activeToken = em.find(Token.class, key);
+            if (activeToken == null || !activeToken.isActive()
+                    || isExpired(activeToken)) {
+                return null;
+            }
+            Employee employee = em.find(Employee.class,
+                    activeToken.getEmployeeId());
+            if (employee == null) {
+                return null;
+            }
+            long expiresAt = activeToken.getExpiryDate() == null
+                    ? Long.MAX_VALUE : activeToken.getExpiryDate().getTime();
+            return new EmployeePrincipal(employee, expiresAt);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * check if a token is past its expiry date, whether or not it was
+     * deactivated yet.
+     * @param token token
+     * @return true if expired
+     */
+    private boolean isExpired(Token token) {
+        return token.getExpiryDate() != null
+                && token.getExpiryDate().getTime()
+                        <= System.currentTimeMillis();
+    }
+
+    /**
+     * abort the request as unauthorized.
+     * @param requestContext request context
+     */
+    private void abort(ContainerRequestContext requestContext) {
+        Map<String, String> responseMap = new HashMap<>();
+        responseMap.put("uri",
+                requestContext.getUriInfo().getAbsolutePath().toString());
+        responseMap.put("message", Response.Status.UNAUTHORIZED.toString());
+        responseMap.put("status", Response.Status.UNAUTHORIZED + "");
+        requestContext.abortWith(Response.status(Response.Status.UNAUTHORIZED)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(responseMap).build());
+    }
+}
@@ -0,0 +1,60 @@
+package com.security;
+
+import java.security.Principal;
+
+import javax.ws.rs.core.SecurityContext;
+
+import com.entity.Employee;
+
+/**
+ * Principal for an employee authenticated by bearer token.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class EmployeePrincipal implements Principal {
+
+    private final Employee employee;
+
+    private final long expiresAt;
+
+    /**
+     * Constructor.
+     * @param employee authenticated employee
+     * @param expiresAt time in millis after which the token is not valid
+     */
+    public EmployeePrincipal(Employee employee, long expiresAt) {
+        this.employee = employee;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * get authenticated employee.
+     * @return employee object
+     */
+    public Employee getEmployee() {
+        return employee;
+    }
+
+    /**
+     * get token expiry time.
+     * @return expiry time in millis
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    @Override
+    public String getName() {
+        return employee.getUserName();
+    }
+
+    /**
+     * get the employee resolved by the authentication filter.
+     * @param securityContext security context of the request
+     * @return employee object
+     */
+    public static Employee currentEmployee(SecurityContext securityContext) {
+        return ((EmployeePrincipal) securityContext.getUserPrincipal())
+                .getEmployee();
+    }
+}
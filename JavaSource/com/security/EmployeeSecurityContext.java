@@ -0,0 +1,50 @@
+package com.security;
+
+import java.security.Principal;
+
+import javax.ws.rs.core.SecurityContext;
+
+/**
+ * Security context exposing the authenticated employee to resources.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class EmployeeSecurityContext implements SecurityContext {
+
+    private static final String ADMIN_ROLE = "admin";
+
+    private final EmployeePrincipal principal;
+
+    private final boolean secure;
+
+    /**
+     * Constructor.
+     * @param principal authenticated principal
+     * @param secure true if the request came over https
+     */
+    public EmployeeSecurityContext(EmployeePrincipal principal,
+            boolean secure) {
+        this.principal = principal;
+        this.secure = secure;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return ADMIN_ROLE.equals(role) && principal.getEmployee().isAdmin();
+    }
+
+    @Override
+    public boolean isSecure() {
+        return secure;
+    }
+
+    @Override
+    public String getAuthenticationScheme() {
+        return "Bearer";
+    }
+}
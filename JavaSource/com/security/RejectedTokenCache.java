@@ -0,0 +1,69 @@
+package com.security;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bounded short-lived set of bearer tokens that failed to resolve, so
+ * repeated requests with an unknown, inactive or expired token are
+ * rejected without reaching the database.
+ * Tokens are kept by key, the oldest being dropped once the set is full.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class RejectedTokenCache {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final long timeToLive;
+
+    private final Map<UUID, Long> rejected;
+
+    /**
+     * Constructor.
+     * @param maxEntries maximum number of rejected tokens
+     * @param timeToLive time to live of an entry in millis
+     */
+    public RejectedTokenCache(final int maxEntries, long timeToLive) {
+        this.timeToLive = timeToLive;
+        this.rejected = new LinkedHashMap<UUID, Long>(
+                INITIAL_CAPACITY, LOAD_FACTOR) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<UUID, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * check if a token was rejected recently.
+     * @param key token key
+     * @return true if rejected and not yet expired
+     */
+    public synchronized boolean contains(UUID key) {
+        Long expiresAt = rejected.get(key);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt <= System.currentTimeMillis()) {
+            rejected.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * remember a rejected token.
+     * @param key token key
+     */
+    public synchronized void add(UUID key) {
+        rejected.remove(key);
+        rejected.put(key, System.currentTimeMillis() + timeToLive);
+    }
+}
@@ -0,0 +1,87 @@
+package com.security;
+
+import java.sql.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+import com.entity.Token;
+
+/**
+ * Compact in-memory set of revoked signed tokens.
+ * Tokens are kept by key until they would have expired anyway, after
+ * which they are dropped.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class RevocationSet {
+
+    /** Number of revocations between purges of the expired keys. */
+    private static final int PURGE_INTERVAL = 1024;
+
+    private final Map<UUID, Long> revoked = new ConcurrentHashMap<>();
+
+    private final AtomicInteger revocations = new AtomicInteger();
+
+    /**
+     * rebuild the set from the inactive tokens in the token table. Only
+     * keys are stored, so random tokens are loaded too; they are rejected
+     * by the database lookup anyway.
+     * @param em entity manager
+     */
+    public void reload(EntityManager em) {
+        TypedQuery<Token> query = em.createQuery(
+                "select t from Token t where isactive=:isactive"
+                + " and expirydate>:now",
+                Token.class);
+        query.setParameter("isactive", false);
+        query.setParameter("now", new Date(System.currentTimeMillis()));
+        List<Token> tokens = query.getResultList();
+        revoked.clear();
+        for (Token token : tokens) {
+            revoke(token.getKey(), token.getExpiryDate().getTime());
+        }
+    }
+
+    /**
+     * revoke a signed token. Expired keys are purged every
+     * {@value #PURGE_INTERVAL} revocations, so a revocation does not scan
+     * the set.
+     * @param key token key
+     * @param expiresAt expiry time of the token in millis
+     */
+    public void revoke(UUID key, long expiresAt) {
+        if (revocations.incrementAndGet() % PURGE_INTERVAL == 0) {
+            purgeExpired();
+        }
+        revoked.put(key, expiresAt);
+    }
+
+    /**
+     * check if a signed token was revoked.
+     * @param key token key
+     * @return true if revoked
+     */
+    public boolean isRevoked(UUID key) {
+        return revoked.containsKey(key);
+    }
+
+    /**
+     * drop keys of tokens that have expired.
+     */
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Long> it = revoked.values().iterator();
+        while (it.hasNext()) {
+            if (it.next() <= now) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.security;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bounded in-memory cache of resolved bearer tokens, by token key.
+ * Entries are evicted in least recently used order once the cache is full,
+ * and expire after the time to live or when the token itself expires.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class TokenCache {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final long timeToLive;
+
+    private final Map<UUID, CachedPrincipal> entries;
+
+    /**
+     * Constructor.
+     * @param maxEntries maximum number of cached tokens
+     * @param timeToLive time to live of an entry in millis
+     */
+    public TokenCache(final int maxEntries, long timeToLive) {
+        this.timeToLive = timeToLive;
+        this.entries = new LinkedHashMap<UUID, CachedPrincipal>(
+                INITIAL_CAPACITY, LOAD_FACTOR, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<UUID, CachedPrincipal> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * get the principal cached for a token.
+     * @param key token key
+     * @return principal, or null if not cached or expired
+     */
+    public synchronized EmployeePrincipal get(UUID key) {
+        CachedPrincipal entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.principal;
+    }
+
+    /**
+     * cache the principal resolved for a token.
+     * @param key token key
+     * @param principal resolved principal
+     */
+    public synchronized void put(UUID key, EmployeePrincipal principal) {
+        long expiresAt = Math.min(System.currentTimeMillis() + timeToLive,
+                principal.getExpiresAt());
+        entries.put(key, new CachedPrincipal(principal, expiresAt));
+    }
+
+    /**
+     * evict a token, e.g. after it was deactivated.
+     * @param key token key
+     */
+    public synchronized void evict(UUID key) {
+        entries.remove(key);
+    }
+
+    /**
+     * evict every token of an employee, e.g. after it was updated.
+     * @param employeeId employee id
+     */
+    public synchronized void evictEmployee(long employeeId) {
+        Iterator<CachedPrincipal> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Long cachedId = it.next().principal.getEmployee().getEmployeeId();
+            if (cachedId != null && cachedId == employeeId) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Cached principal with its expiry time.
+     */
+    private static final class CachedPrincipal {
+        private final EmployeePrincipal principal;
+        private final long expiresAt;
+
+        /**
+         * Constructor.
+         * @param principal cached principal
+         * @param expiresAt expiry time in millis
+         */
+        CachedPrincipal(EmployeePrincipal principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
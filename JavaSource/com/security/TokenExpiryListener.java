@@ -0,0 +1,25 @@
+package com.security;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Stops the token expiry schedulers when the application is undeployed,
+ * so a redeploy does not leave their threads running.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+@WebListener
+public class TokenExpiryListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        // schedulers are started by the application
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        TokenExpiryScheduler.stopAll();
+    }
+}
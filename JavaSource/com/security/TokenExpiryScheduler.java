@@ -0,0 +1,244 @@
+package com.security;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+
+import com.qualifier.Resource;
+
+/**
+ * Deactivates tokens when they expire.
+ * Active tokens are kept in a hashed timing wheel of one slot per tick,
+ * so each tick only looks at the tokens hashed to its slot. Due tokens are
+ * deactivated in small batches and evicted from the token cache as soon
+ * as their batch is committed.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class TokenExpiryScheduler {
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final long STOP_TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+
+    private static final Logger LOGGER =
+            Logger.getLogger(TokenExpiryScheduler.class.getName());
+
+    /** Started schedulers, stopped when the application is undeployed. */
+    private static final Set<TokenExpiryScheduler> STARTED =
+            ConcurrentHashMap.newKeySet();
+
+    private final TokenCache tokenCache;
+
+    private final long tickMillis;
+
+    private final List<List<Expiry>> wheel;
+
+    private final ScheduledExecutorService executor;
+
+    private long nextTick;
+
+    /**
+     * Constructor.
+     * @param tokenCache cache of resolved tokens
+     * @param tickMillis duration of a tick in millis
+     * @param wheelSize number of slots of the wheel
+     */
+    public TokenExpiryScheduler(TokenCache tokenCache, long tickMillis,
+            int wheelSize) {
+        this.tokenCache = tokenCache;
+        this.tickMillis = tickMillis;
+        this.wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new ArrayList<Expiry>());
+        }
+        this.nextTick = System.currentTimeMillis() / tickMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "token-expiry-scheduler");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * schedule the expiry of every active token in the token table.
+     * @param em entity manager
+     */
+    public void reload(EntityManager em) {
+        TypedQuery<Object[]> query = em.createQuery(
+                "select t.key, t.expiryDate from Token t"
+                + " where t.active = true and t.expiryDate is not null",
+                Object[].class);
+        for (Object[] token : query.getResultList()) {
+            schedule((UUID) token[0],
+                    ((Date) token[1]).getTime());
+        }
+    }
+
+    /**
+     * start ticking, until {@link #stop} or {@link #stopAll}.
+     */
+    public void start() {
+        STARTED.add(this);
+        executor.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * stop ticking, waiting for a running tick to finish.
+     */
+    public void stop() {
+        STARTED.remove(this);
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * stop every started scheduler, before the entity manager factory
+     * they use goes away.
+     */
+    public static void stopAll() {
+        for (TokenExpiryScheduler scheduler : STARTED) {
+            scheduler.stop();
+        }
+    }
+
+    /**
+     * schedule the expiry of a token. A token already due is deactivated
+     * on the next tick.
+     * @param key token key
+     * @param expiresAt expiry time of the token in millis
+     */
+    public synchronized void schedule(UUID key, long expiresAt) {
+        long tick = Math.max(expiresAt / tickMillis, nextTick);
+        wheel.get((int) (tick % wheel.size()))
+                .add(new Expiry(key, expiresAt));
+    }
+
+    /**
+     * collect the tokens due in the slots passed since the last tick, and
+     * deactivate them. Any failure is caught, since an exception escaping
+     * a tick would cancel all the following ones; the due tokens are then
+     * scheduled again for the next tick.
+     */
+    private void tick() {
+        List<UUID> due = collectDue(System.currentTimeMillis());
+        try {
+            deactivate(due);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Token expiry tick failed", e);
+            for (UUID key : due) {
+                schedule(key, System.currentTimeMillis());
+            }
+        }
+    }
+
+    /**
+     * remove the due tokens from the slots passed since the last tick.
+     * After a long pause a single rotation visits every slot, so older
+     * ticks are skipped.
+     * @param now current time in millis
+     * @return due tokens
+     */
+    private synchronized List<UUID> collectDue(long now) {
+        List<UUID> due = new ArrayList<>();
+        long currentTick = now / tickMillis;
+        nextTick = Math.max(nextTick, currentTick - wheel.size() + 1);
+        for (; nextTick <= currentTick; nextTick++) {
+            Iterator<Expiry> it =
+                    wheel.get((int) (nextTick % wheel.size())).iterator();
+            while (it.hasNext()) {
+                Expiry expiry = it.next();
+                if (expiry.expiresAt <= now) {
+                    due.add(expiry.key);
+                    it.remove();
+                }
+            }
+        }
+        return due;
+    }
+
+    /**
+     * deactivate tokens in batches, each in its own transaction, and evict
+     * them from the token cache once committed. The bulk update also
+     * evicts the token region of the second level cache. The creation
+     * date is set to itself, or MySQL would set it to the update time as
+     * the first timestamp column. A batch that fails is scheduled again
+     * for the next tick.
+     * @param keys keys of the due tokens
+     */
+    private void deactivate(List<UUID> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        EntityManager em = Resource.createEntityManager();
+        try {
+            for (int from = 0; from < keys.size(); from += BATCH_SIZE) {
+                List<UUID> batch = keys.subList(from,
+                        Math.min(from + BATCH_SIZE, keys.size()));
+                try {
+                    em.getTransaction().begin();
+                    Query query = em.createQuery(
+                            "update Token t set t.active = false,"
+                            + " t.dateCreated = t.dateCreated"
+                            + " where t.key in :keys"
+                            + " and t.active = true");
+                    query.setParameter("keys", batch);
+                    query.executeUpdate();
+                    em.getTransaction().commit();
+                } catch (PersistenceException e) {
+                    if (em.getTransaction().isActive()) {
+                        em.getTransaction().rollback();
+                    }
+                    for (UUID key : batch) {
+                        schedule(key, System.currentTimeMillis());
+                    }
+                    continue;
+                }
+                for (UUID key : batch) {
+                    tokenCache.evict(key);
+                }
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Token scheduled to expire.
+     */
+    private static final class Expiry {
+        private final UUID key;
+        private final long expiresAt;
+
+        /**
+         * Constructor.
+         * @param key token key
+         * @param expiresAt expiry time in millis
+         */
+        Expiry(UUID key, long expiresAt) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
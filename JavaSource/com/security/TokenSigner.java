@@ -0,0 +1,127 @@
+package com.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.entity.Employee;
+import com.entity.Token;
+
+/**
+ * Issues and verifies self-contained HMAC signed tokens.
+ * A signed token is {@code payload.signature}, where the payload holds the
+ * employee id, admin flag, expiry time and username, so it can be
+ * validated without a database lookup.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class TokenSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final char SEPARATOR = '.';
+
+    private static final String FIELD_SEPARATOR = ":";
+
+    private static final int FIELD_COUNT = 4;
+
+    private static final Base64.Encoder ENCODER =
+            Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Mac prototype;
+
+    /**
+     * Constructor.
+     * @param secret shared signing secret
+     */
+    public TokenSigner(String secret) {
+        try {
+            prototype = Mac.getInstance(ALGORITHM);
+            prototype.init(new SecretKeySpec(
+                    secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * check if a token string has the signed token format.
+     * @param token token string
+     * @return true if the token is a signed token
+     */
+    public static boolean isSigned(String token) {
+        return token.indexOf(SEPARATOR) >= 0;
+    }
+
+    /**
+     * create the signed token string for a token.
+     * @param token token holding employee id, admin, username and expiry
+     * @return signed token string
+     */
+    public String sign(Token token) {
+        String payload = token.getEmployeeId() + FIELD_SEPARATOR
+                + token.isAdmin() + FIELD_SEPARATOR
+                + token.getExpiryDate().getTime() + FIELD_SEPARATOR
+                + token.getUsername();
+        String encoded = ENCODER.encodeToString(
+                payload.getBytes(StandardCharsets.UTF_8));
+        return encoded + SEPARATOR + ENCODER.encodeToString(mac(encoded));
+    }
+
+    /**
+     * verify a signed token string.
+     * @param token signed token string
+     * @return principal, or null if the token is forged, malformed or expired
+     */
+    public EmployeePrincipal verify(String token) {
+        int index = token.indexOf(SEPARATOR);
+        if (index < 0) {
+            return null;
+        }
+        String encoded = token.substring(0, index);
+        String[] fields;
+        try {
+            byte[] signature = DECODER.decode(token.substring(index + 1));
+            if (!MessageDigest.isEqual(signature, mac(encoded))) {
+                return null;
+            }
+            fields = new String(DECODER.decode(encoded),
+                    StandardCharsets.UTF_8).split(FIELD_SEPARATOR, FIELD_COUNT);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (fields.length != FIELD_COUNT) {
+            return null;
+        }
+        long expiresAt = Long.parseLong(fields[2]);
+        if (expiresAt <= System.currentTimeMillis()) {
+            return null;
+        }
+        Employee employee = new Employee();
+        employee.setEmployeeId(Long.valueOf(fields[0]));
+        employee.setAdmin(Boolean.parseBoolean(fields[1]));
+        employee.setUserName(fields[FIELD_COUNT - 1]);
+        return new EmployeePrincipal(employee, expiresAt);
+    }
+
+    /**
+     * compute the signature of an encoded payload.
+     * @param encoded encoded payload
+     * @return signature bytes
+     */
+    private byte[] mac(String encoded) {
+        Mac mac;
+        try {
+            mac = (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        return mac.doFinal(encoded.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -1,97 +1,140 @@
 package com.webservice;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
+import javax.persistence.PersistenceException;
 import javax.persistence.TypedQuery;
 import javax.transaction.Transactional;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
-import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.UriInfo;
+
+import org.hibernate.exception.ConstraintViolationException;
 
 import com.entity.Employee;
 import com.entity.Token;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.metrics.QueryBudget;
 import com.qualifier.Resource;
+import com.security.EmployeePrincipal;
+import com.security.RevocationSet;
+import com.security.Secured;
+import com.security.TokenCache;
 
 /**
  * Service class which defines REST endpoints for the Employee object.
  * @author Cameron
  * @version 1.0
  */
+@Secured
 @Path("/user")
 public class EmployeeService {
     
     @Inject
     private EntityManager em;
     
+    private static final int MAX_PAGE_SIZE = 500;
+    
+    private static final int MAX_BATCH_SIZE = 500;
+    
+    private final TokenCache tokenCache;
+    
+    private final RevocationSet revocationSet;
+    
     /**
      * Constructor which assigns the entity manager.
+     * @param tokenCache cache of resolved tokens, evicted on changes
+     * @param revocationSet revoked signed tokens, added to on deletes
      */
-    public EmployeeService() {
+    public EmployeeService(TokenCache tokenCache,
+            RevocationSet revocationSet) {
         em = Resource.getEntityManager();
+        this.tokenCache = tokenCache;
+        this.revocationSet = revocationSet;
     }
     
     /**
-     * Gets all employees.
-     * @param token Authentication token used in rest header.
+     * Gets all employees, or a page of employees ordered by ID.
+     * When a limit is given and more employees follow, the response has
+     * a Link header with rel "next" pointing to the next page.
+     * @param securityContext security context holding the employee
+     * @param limit maximum number of employees, all if empty
+     * @param after ID of the last employee of the previous page
+     * @param uriInfo uri information
      * @return Response for rest call
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getEmployees(@HeaderParam("Authorization") String token) {
-        token = token.replace("Bearer ", "");
-        if (!validateToken(token)) {
-            throw new WebApplicationException(Response.Status.UNAUTHORIZED);
-        }
-        Employee currentEmployee = getEmployeeByToken(token);
-        
-        if (currentEmployee == null) {
-            throw new WebApplicationException(Response.Status.NOT_FOUND);
-        }
+    @QueryBudget(value = 3, entityLoads = -1, transactions = 0)
+    public Response getEmployees(@Context SecurityContext securityContext,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("after") @DefaultValue("0") long after,
+            @Context UriInfo uriInfo) {
+        Employee currentEmployee =
+                EmployeePrincipal.currentEmployee(securityContext);
         
         if (!currentEmployee.isAdmin()) {
             throw new WebApplicationException(Response.Status.FORBIDDEN);
         }
-        String response = null;
-
-        List<Employee> list = getAllEmployees();
-        response = list.toString();
-        return Response.ok(response).build();
+        if (limit != null && limit < 1) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
+        Integer pageSize = limit == null
+                ? null : Math.min(limit, MAX_PAGE_SIZE);
+        TypedQuery<Employee> query = createEmployeesAfterQuery(after);
+        Response.ResponseBuilder response = Response.ok();
+        Iterator<Employee> employees;
+        if (pageSize == null) {
+            employees = JsonStreams.scroll(em, query, Employee.class);
+        } else {
+            query.setMaxResults(pageSize + 1);
+            List<Employee> list = query.getResultList();
+            if (list.size() > pageSize) {
+                list = list.subList(0, pageSize);
+                response.link(uriInfo.getRequestUriBuilder()
+                        .replaceQueryParam("after",
+                                list.get(pageSize - 1).getEmployeeId())
+                        .build(), "next");
+            }
+            employees = list.iterator();
+        }
+        return response.entity(JsonStreams.array(employees, Employee.class))
+                .build();
     }
     
     /**
      * Gets a single employee.
-     * @param token Authentication token.
+     * @param securityContext security context holding the employee
      * @param id ID of employee to be found.
      * @return Response for rest call.
      */
     @GET
     @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getEmployee(@HeaderParam("Authorization") String token, 
+    @QueryBudget(value = 3, entityLoads = 3, transactions = 0)
+    public Response getEmployee(@Context SecurityContext securityContext, 
             @PathParam("id") long id) {
-        token = token.replace("Bearer ", "");
-        if (!validateToken(token)) {
-            throw new WebApplicationException(Response.Status.UNAUTHORIZED);
-        }
-        Employee currentEmployee = getEmployeeByToken(token);
-        
-        if (currentEmployee == null) {
-            throw new WebApplicationException(Response.Status.NOT_FOUND);
-        }
+        Employee currentEmployee =
+                EmployeePrincipal.currentEmployee(securityContext);
         
         Employee employeeToView = getEmployeeById(id);
         
@@ -105,43 +148,31 @@ public class EmployeeService {
     
     /**
      * Creates a new employee.
-     * @param token Authentication token.
-     * @param payload String containing all fields to create a new employee
+     * @param securityContext security context holding the employee
+     * @param employeeToBeAdded employee to create
      * @return Response for REST call
      */
     @Transactional
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response createEmployee(@HeaderParam("Authorization") String token,
-            String payload) {
-        token = token.replace("Bearer ", "");
-        if (!validateToken(token)) {
-            throw new WebApplicationException(Response.Status.UNAUTHORIZED);
-        }
-        
-        Employee currentEmployee = getEmployeeByToken(token);
-        
-        if (currentEmployee == null) {
-            throw new WebApplicationException(Response.Status.NOT_FOUND);
-        }
+    @QueryBudget(value = 5, entityLoads = 3, transactions = 1)
+    public Response createEmployee(@Context SecurityContext securityContext,
+            Employee employeeToBeAdded) {
+        Employee currentEmployee =
+                EmployeePrincipal.currentEmployee(securityContext);
         
         if (!currentEmployee.isAdmin()) {
             throw new WebApplicationException(Response.Status.UNAUTHORIZED);
         }
-        List<Employee> allEmployees = getAllEmployees();
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        Gson gson = gsonBuilder.create();
-        Employee employeeToBeAdded = gson.fromJson(payload, Employee.class);
-        for (Employee e : allEmployees) {
-            if (e.getUserName()
-                    .equalsIgnoreCase(employeeToBeAdded.getUserName())) {
-                throw new WebApplicationException(Response.Status.CONFLICT);
-            }
+        if (employeeToBeAdded == null) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
+        if (isUserNameTaken(employeeToBeAdded.getUserName())) {
+            throw new WebApplicationException(Response.Status.CONFLICT);
         }
       
         String returnCode = "200";
-        em = Resource.getEntityManager();
 
         try {
             em.getTransaction().begin();
@@ -163,14 +194,83 @@ public class EmployeeService {
             return Response.status(Response.Status.NOT_FOUND)
                     .entity(returnCode).build();
 
+        } catch (PersistenceException err) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            if (isConstraintViolation(err)) {
+                throw new WebApplicationException(Response.Status.CONFLICT);
+            }
+            throw err;
         }
         return Response.status(Response.Status.CREATED)
                 .entity(returnCode).build();
     }
     
+    /**
+     * Creates many employees in one transaction. Each employee is reported
+     * with its own status: CREATED with its href, CONFLICT if its username
+     * is taken, or BAD_REQUEST if it has no username. Any other database
+     * error, such as a value too long for its column, fails and rolls back
+     * the whole batch.
+     * @param securityContext security context holding the employee
+     * @param employees employees to create
+     * @param uriInfo uri information
+     * @return Response for REST call
+     */
+    @Transactional
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @QueryBudget(value = 5, entityLoads = 2, transactions = 1)
+    public Response createEmployees(@Context SecurityContext securityContext,
+            List<Employee> employees, @Context UriInfo uriInfo) {
+        Employee currentEmployee =
+                EmployeePrincipal.currentEmployee(securityContext);
+        
+        if (!currentEmployee.isAdmin()) {
+            throw new WebApplicationException(Response.Status.UNAUTHORIZED);
+        }
+        if (employees == null || employees.size() > MAX_BATCH_SIZE) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
+        List<Employee> valid = new ArrayList<>();
+        for (Employee employee : employees) {
+            if (employee != null && employee.getUserName() != null) {
+                valid.add(employee);
+            }
+        }
+        boolean[] created = new EmployeeWriter(em).createAll(valid);
+        List<Map<String, String>> results = new ArrayList<>();
+        int next = 0;
+        for (Employee employee : employees) {
+            Map<String, String> result = new LinkedHashMap<>();
+            Response.Status status;
+            if (employee == null || employee.getUserName() == null) {
+                status = Response.Status.BAD_REQUEST;
+            } else {
+                result.put("userName", employee.getUserName());
+                if (created[next++]) {
+                    status = Response.Status.CREATED;
+                    result.put("href", uriInfo.getBaseUriBuilder()
+                            .path(EmployeeService.class)
+                            .path(String.valueOf(employee.getEmployeeId()))
+                            .build().toString());
+                } else {
+                    status = Response.Status.CONFLICT;
+                }
+            }
+            result.put("message", status.toString());
+            result.put("status", status.getStatusCode() + "");
+            results.add(result);
+        }
+        return Response.ok(results).build();
+    }
+    
     /**
      * Deletes a single employee.
-     * @param token Authentication token
+     * @param securityContext security context holding the employee
      * @param id ID of employee to be deleted
      * @return Response of REST call
      */
@@ -179,18 +279,11 @@ public class EmployeeService {
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     @Path("delete/{id}")
-    public Response deleteEmployee(@HeaderParam("Authorization") String token,
+    @QueryBudget(value = 5, entityLoads = 4, transactions = 1)
+    public Response deleteEmployee(@Context SecurityContext securityContext,
                                     @PathParam("id") long id) {
-        token = token.replace("Bearer ", "");
-        if (!validateToken(token)) {
-            throw new WebApplicationException(Response.Status.UNAUTHORIZED);
-        }
-        
-        Employee currentEmployee = getEmployeeByToken(token);
-        
-        if (currentEmployee == null) {
-            throw new WebApplicationException(Response.Status.NOT_FOUND);
-        }
+        Employee currentEmployee =
+                EmployeePrincipal.currentEmployee(securityContext);
         
         if (!currentEmployee.isAdmin()) {
             throw new WebApplicationException(Response.Status.UNAUTHORIZED);
@@ -200,13 +293,24 @@ public class EmployeeService {
             throw new WebApplicationException(Response.Status.FORBIDDEN);
         }
         
-        em = Resource.getEntityManager();
         String returnCode = "";
         try {
             em.getTransaction().begin();
             Employee existingEmployee = em.find(Employee.class, id);
+            List<Token> tokens = getTokensByEmployeeId(id);
+            for (Token token : tokens) {
+                if (token.isActive()) {
+                    revocationSet.revoke(token.getKey(),
+                            token.getExpiryDate().getTime());
+                }
+            }
             em.remove(existingEmployee);
             em.getTransaction().commit();
+            Cache cache = em.getEntityManagerFactory().getCache();
+            for (Token token : tokens) {
+                cache.evict(Token.class, token.getKey());
+            }
+            tokenCache.evictEmployee(id);
 //            em.close();
             returnCode = "{" + "\"message\":\"Employee succesfully deleted\"" 
                     + "}";
@@ -224,41 +328,33 @@ public class EmployeeService {
     
     /**
      * Updates an existing employee object.
-     * @param token Authentication token
+     * @param securityContext security context holding the employee
      * @param id ID of employee to be updated
-     * @param payload String containing fields to be updated
+     * @param employee fields to be updated
      * @return Response of REST call
      */
     @Transactional
     @PUT
     @Path("employees/{id}")
     @Consumes("application/json")
-    public Response updateEmployee(@HeaderParam("Authorization") String token, 
-            @PathParam("id") int id, String payload) {
-        token = token.replace("Bearer ", "");
-        if (!validateToken(token)) {
-            throw new WebApplicationException(Response.Status.UNAUTHORIZED);
-        }
-        
-        Employee currentEmployee = getEmployeeByToken(token);
-        
-        if (currentEmployee == null) {
-            throw new WebApplicationException(Response.Status.NOT_FOUND);
-        }
+    @QueryBudget(value = 4, entityLoads = 3, transactions = 1)
+    public Response updateEmployee(@Context SecurityContext securityContext, 
+            @PathParam("id") int id, Employee employee) {
+        Employee currentEmployee =
+                EmployeePrincipal.currentEmployee(securityContext);
         
         if (!currentEmployee.isAdmin() 
                 || currentEmployee.getEmployeeId() != id) {
             throw new WebApplicationException(Response.Status.UNAUTHORIZED);
         }
         
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        Gson gson = gsonBuilder.create();
-        Employee employee = gson.fromJson(payload, Employee.class);
+        if (employee == null) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
 
         System.out.println(employee);
-        em = Resource.getEntityManager();
         em.getTransaction().begin();
-        Employee entity = em.find(Employee.class, id);
+        Employee entity = em.find(Employee.class, (long) id);
         if (entity == null) {
             String returnCode = "{ Employee not found }";
             return Response.status(Response.Status.NOT_FOUND)
@@ -269,6 +365,7 @@ public class EmployeeService {
         em.persist(entity);
         em.flush();
         em.getTransaction().commit();
+        tokenCache.evictEmployee(id);
         String returnCode = "{" + employee.getEmployeeId() 
             + ":\"Employee successfully edited.\"" + "}";
         return Response.status(Response.Status.CREATED)
@@ -276,94 +373,71 @@ public class EmployeeService {
     }
     
     /**
-     * Gets the token from the database.
-     * @param token Token to get from the database.
-     * @return Token
+     * Gets the employee from the DB by ID.
+     * @param employeeId of employee to be found
+     * @return Employee object
      */
-    private Token getToken(String token) {
-        TypedQuery<Token> query = em.createQuery(
-              "select t from Token t where token=:token and isactive=:isactive",
-              Token.class);
-        query.setParameter("token", token);
-        query.setParameter("isactive", true);
-        Token activeToken;
-        try {
-            activeToken = query.getSingleResult();
-        } catch (NoResultException e) {
-            e.printStackTrace();
-            activeToken = null;
-        }
-        return activeToken;
+    private Employee getEmployeeById(long employeeId) {
+        return em.find(Employee.class, employeeId);
     }
-
+    
     /**
-     * Validates if the token is an active token.
-     * @param token to validate
-     * @return true if it token is not null
+     * Creates the query of the employees following an ID, which uses the
+     * primary key index.
+     * @param after ID of the last employee already returned
+     * @return query of employees ordered by ID
      */
-    private boolean validateToken(String token) {
-        Token activeToken = getToken(token);
-        return !(activeToken == null);
+    private TypedQuery<Employee> createEmployeesAfterQuery(long after) {
+        TypedQuery<Employee> query = em.createQuery(
+                "select e from Employee e where e.employeeId > :after"
+                + " order by e.employeeId",
+                Employee.class);
+        query.setParameter("after", after);
+        return query;
     }
     
     /**
-     * Gets the employee from the DB using the token.
-     * @param token of employee to be found
-     * @return Employee object
+     * Gets the tokens of an employee, to revoke and evict them when the
+     * employee is deleted. The database deletes them with the employee.
+     * @param employeeId employee ID
+     * @return tokens
      */
-    private Employee getEmployeeByToken(String token) {
-        Token activeToken = getToken(token);
-        long employeeId = activeToken.getEmployeeId();
-        TypedQuery<Employee> query = em.createQuery(
-                "select e from Employee e where employeeid=:employeeid",
-                Employee.class);
+    private List<Token> getTokensByEmployeeId(long employeeId) {
+        TypedQuery<Token> query = em.createQuery(
+                "select t from Token t where t.employeeId = :employeeid",
+                Token.class);
         query.setParameter("employeeid", employeeId);
-        Employee currentEmployee;
-        try {
-            currentEmployee = query.getSingleResult();
-        } catch (NoResultException e) {
-            e.printStackTrace();
-            currentEmployee = null;
-        }
-        return currentEmployee;
+        return query.getResultList();
     }
     
     /**
-     * Gets the employee from the DB by ID.
-     * @param employeeId of employee to be found
-     * @return Employee object
+     * Checks if a username is taken, on the unique username index. The
+     * index collation is case insensitive.
+     * @param userName username
+     * @return true if an employee has this username
      */
-    private Employee getEmployeeById(long employeeId) {
-        TypedQuery<Employee> query = em.createQuery(
-                "select e from Employee e where employeeid=:employeeid",
-                Employee.class);
-        query.setParameter("employeeid", employeeId);
-        Employee employee;
-        try {
-            employee = query.getSingleResult();
-        } catch (NoResultException e) {
-            e.printStackTrace();
-            employee = null;
-        }
-        return employee;
+    private boolean isUserNameTaken(String userName) {
+        TypedQuery<Long> query = em.createQuery(
+                "select count(e) from Employee e where e.userName = :username",
+                Long.class);
+        query.setParameter("username", userName);
+        return query.getSingleResult() > 0;
     }
     
     /**
-     * Gets a list of all employees in the db.
-     * @return List of all employee in the DB
+     * Checks if a persistence error was caused by a constraint violation,
+     * such as a username taken concurrently.
+     * @param err persistence error
+     * @return true if caused by a constraint violation
      */
-    private List<Employee> getAllEmployees() {
-        TypedQuery<Employee> query = em.createQuery(
-                "select e from Employee e",
-                Employee.class);
-        List<Employee> employees;
-        try {
-            employees = query.getResultList();
-        } catch (NoResultException e) {
-            e.printStackTrace();
-            employees = null;
+    private boolean isConstraintViolation(PersistenceException err) {
+        for (Throwable cause = err; cause != null;
+                cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                return true;
+            }
         }
-        return employees;
+        return false;
     }
     
 }
@@ -0,0 +1,199 @@
+package com.webservice;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+
+import com.entity.Employee;
+import com.metrics.JdbcTimingListener;
+
+/**
+ * Creates employees in a single transaction with a JDBC batch. Usernames
+ * already taken, or repeated in the batch, are skipped rather than failing
+ * the whole batch; any other error fails it.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+class EmployeeWriter {
+
+    private static final String INSERT_EMPLOYEE =
+            "insert into Employee (firstname, lastname, username,"
+            + " password, createddate, isadmin)"
+            + " values (?, ?, ?, ?, ?, ?)"
+            + " on duplicate key update employeeid = employeeid";
+
+    private final EntityManager em;
+
+    /**
+     * Constructor.
+     * @param em entity manager of the request
+     */
+    EmployeeWriter(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * create employees. Existing usernames are looked up with one locking
+     * query on the unique username index, which also keeps the free ones
+     * from being taken concurrently until the commit. The others are
+     * inserted in one batch, then their ids are selected by username, so
+     * the result does not depend on the batch update counts or generated
+     * keys, which the driver may merge when rewriting batches.
+     * @param employees employees to create, each with a username
+     * @return for each employee, true if created, false if the username is
+     *     taken
+     * @throws HibernateException if the batch failed and was rolled back
+     */
+    boolean[] createAll(List<Employee> employees) {
+        boolean[] created = new boolean[employees.size()];
+        em.getTransaction().begin();
+        try {
+            em.unwrap(Session.class).doWork(
+                    JdbcTimingListener.timed(connection -> {
+                Set<String> taken = selectTakenUserNames(connection,
+                        employees);
+                List<Integer> inserts = new ArrayList<>();
+                for (int i = 0; i < employees.size(); i++) {
+                    if (taken.add(normalize(employees.get(i)))) {
+                        inserts.add(i);
+                    }
+                }
+                insert(connection, employees, inserts);
+                selectIds(connection, employees, inserts, created);
+            }));
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        }
+        return created;
+    }
+
+    /**
+     * select the usernames of a batch that are already taken, locking the
+     * index entries and gaps of all of them until the commit.
+     * @param connection jdbc connection
+     * @param employees employees to create
+     * @return normalized usernames already taken
+     * @throws SQLException on database error
+     */
+    private Set<String> selectTakenUserNames(Connection connection,
+            List<Employee> employees) throws SQLException {
+        Set<String> taken = new HashSet<>();
+        if (employees.isEmpty()) {
+            return taken;
+        }
+        String[] marks = new String[employees.size()];
+        Arrays.fill(marks, "?");
+        try (PreparedStatement ps = connection.prepareStatement(
+                "select username from Employee where username in ("
+                + String.join(", ", marks) + ") for update")) {
+            for (int i = 0; i < employees.size(); i++) {
+                ps.setString(i + 1, employees.get(i).getUserName());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    taken.add(rs.getString(1).toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * insert employees in one batch.
+     * @param connection jdbc connection
+     * @param employees employees to create
+     * @param inserts indexes of the employees to insert
+     * @throws SQLException on database error
+     */
+    private void insert(Connection connection, List<Employee> employees,
+            List<Integer> inserts) throws SQLException {
+        if (inserts.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                INSERT_EMPLOYEE)) {
+            for (int i : inserts) {
+                Employee employee = employees.get(i);
+                ps.setString(1, employee.getFirstName());
+                ps.setString(2, employee.getLastName());
+                ps.setString(3, employee.getUserName());
+                ps.setString(4, employee.getPassword());
+                if (employee.getCreatedDate() == null) {
+                    ps.setNull(5, Types.TIMESTAMP);
+                } else {
+                    ps.setDate(5, employee.getCreatedDate());
+                }
+                ps.setBoolean(6, employee.isAdmin());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * select the ids of the inserted employees by username, and set them.
+     * @param connection jdbc connection
+     * @param employees employees to create
+     * @param inserts indexes of the inserted employees
+     * @param created set to true for each employee found
+     * @throws SQLException on database error
+     */
+    private void selectIds(Connection connection, List<Employee> employees,
+            List<Integer> inserts, boolean[] created) throws SQLException {
+        if (inserts.isEmpty()) {
+            return;
+        }
+        String[] marks = new String[inserts.size()];
+        Arrays.fill(marks, "?");
+        Map<String, Long> ids = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "select employeeid, username from Employee where username in ("
+                + String.join(", ", marks) + ")")) {
+            for (int j = 0; j < inserts.size(); j++) {
+                ps.setString(j + 1,
+                        employees.get(inserts.get(j)).getUserName());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.put(rs.getString(2).toLowerCase(Locale.ROOT),
+                            rs.getLong(1));
+                }
+            }
+        }
+        for (int i : inserts) {
+            Long id = ids.get(normalize(employees.get(i)));
+            if (id != null) {
+                employees.get(i).setEmployeeId(id);
+                created[i] = true;
+            }
+        }
+    }
+
+    /**
+     * normalize the username of an employee, as compared by the unique
+     * username key.
+     * @param employee employee
+     * @return lower case username
+     */
+    private static String normalize(Employee employee) {
+        return employee.getUserName().toLowerCase(Locale.ROOT);
+    }
+}
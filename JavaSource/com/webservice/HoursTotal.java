@@ -0,0 +1,93 @@
+package com.webservice;
+
+/**
+ * Total hours of a group of timesheet rows, built by the reporting
+ * queries. Only the keys of the grouping are set, so a total is written
+ * as a small JSON object.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class HoursTotal {
+
+    private Long employeeId;
+
+    private Integer yearWeek;
+
+    private Long projectId;
+
+    private String workPackageId;
+
+    private long hours;
+
+    /**
+     * Constructor, total of an employee week.
+     * @param employeeId employee id
+     * @param yearWeek year week key
+     * @param hours total hours
+     */
+    public HoursTotal(Long employeeId, Integer yearWeek, Long hours) {
+        this.employeeId = employeeId;
+        this.yearWeek = yearWeek;
+        this.hours = hours == null ? 0 : hours;
+    }
+
+    /**
+     * Constructor, total of a project.
+     * @param projectId project id
+     * @param hours total hours
+     */
+    public HoursTotal(Long projectId, Long hours) {
+        this.projectId = projectId;
+        this.hours = hours == null ? 0 : hours;
+    }
+
+    /**
+     * Constructor, total of a work package.
+     * @param workPackageId work package id
+     * @param hours total hours
+     */
+    public HoursTotal(String workPackageId, Long hours) {
+        this.workPackageId = workPackageId;
+        this.hours = hours == null ? 0 : hours;
+    }
+
+    /**
+     * get the employee id.
+     * @return employee id, null unless grouped by employee week
+     */
+    public Long getEmployeeId() {
+        return employeeId;
+    }
+
+    /**
+     * get the year week key.
+     * @return year week, null unless grouped by employee week
+     */
+    public Integer getYearWeek() {
+        return yearWeek;
+    }
+
+    /**
+     * get the project id.
+     * @return project id, null unless grouped by project
+     */
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    /**
+     * get the work package id.
+     * @return work package id, null unless grouped by work package
+     */
+    public String getWorkPackageId() {
+        return workPackageId;
+    }
+
+    /**
+     * get the total hours.
+     * @return hours
+     */
+    public long getHours() {
+        return hours;
+    }
+}
@@ -0,0 +1,211 @@
+package com.webservice;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
+import com.google.gson.stream.JsonWriter;
+import com.json.JsonCodec;
+
+/**
+ * Streams list responses as a JSON array, one element at a time, so a
+ * response never holds the whole result in memory.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+final class JsonStreams {
+
+    /** Number of elements written between persistence context clears. */
+    private static final int CLEAR_INTERVAL = 100;
+
+    /**
+     * Not instantiated.
+     */
+    private JsonStreams() {
+    }
+
+    /**
+     * create a streaming output writing elements as a JSON array.
+     * If the elements come from {@link #scroll}, the cursor is closed once
+     * the array is written.
+     * @param <T> element type
+     * @param items elements to write
+     * @param type element type
+     * @return streaming output
+     */
+    static <T> StreamingOutput array(Iterator<T> items, Class<T> type) {
+        return output -> {
+            try {
+                JsonWriter writer = new JsonWriter(new OutputStreamWriter(
+                        output, StandardCharsets.UTF_8));
+                writer.beginArray();
+                while (items.hasNext()) {
+                    JsonCodec.GSON.toJson(items.next(), type, writer);
+                }
+                writer.endArray();
+                writer.flush();
+            } finally {
+                if (items instanceof Closeable) {
+                    ((Closeable) items).close();
+                }
+            }
+        };
+    }
+
+    /**
+     * run a query as a forward only cursor.
+     * The persistence context is cleared as the cursor advances, so only
+     * the current elements stay in memory. The query must not fetch join a
+     * collection: the MySQL driver streams the results, and a streamed
+     * result set does not support the positioning calls Hibernate makes to
+     * group the rows of a collection; use {@link #pages} instead.
+     * @param <T> element type
+     * @param em entity manager running the query
+     * @param query query to scroll
+     * @param type element type
+     * @return iterator over the query results, closed at the end
+     */
+    static <T> Iterator<T> scroll(EntityManager em, TypedQuery<T> query,
+            Class<T> type) {
+        ScrollableResults results = query.unwrap(Query.class)
+                .setFetchSize(Integer.MIN_VALUE)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        return new ScrollIterator<T>(em.unwrap(Session.class), results, type);
+    }
+
+    /**
+     * iterate over results loaded one page at a time, each page from the
+     * last element of the previous one, for keyset queries.
+     * The persistence context is cleared before each page but the first,
+     * so only the current page stays in memory.
+     * @param <T> element type
+     * @param em entity manager running the queries
+     * @param pageSize number of elements of a full page; a shorter page is
+     *     the last one
+     * @param nextPage loads the page following an element, the first page
+     *     if null
+     * @return iterator over the pages
+     */
+    static <T> Iterator<T> pages(EntityManager em, int pageSize,
+            Function<T, List<T>> nextPage) {
+        return new PageIterator<T>(em, pageSize, nextPage);
+    }
+
+    /**
+     * Iterator over results loaded one page at a time.
+     * @param <T> element type
+     */
+    private static final class PageIterator<T> implements Iterator<T> {
+        private final EntityManager em;
+        private final int pageSize;
+        private final Function<T, List<T>> nextPage;
+        private Iterator<T> page = Collections.emptyIterator();
+        private T last;
+        private boolean lastPage;
+
+        /**
+         * Constructor.
+         * @param em entity manager running the queries
+         * @param pageSize number of elements of a full page
+         * @param nextPage loads the page following an element
+         */
+        PageIterator(EntityManager em, int pageSize,
+                Function<T, List<T>> nextPage) {
+            this.em = em;
+            this.pageSize = pageSize;
+            this.nextPage = nextPage;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!page.hasNext() && !lastPage) {
+                if (last != null) {
+                    em.clear();
+                }
+                List<T> elements = nextPage.apply(last);
+                lastPage = elements.size() < pageSize;
+                page = elements.iterator();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = page.next();
+            return last;
+        }
+    }
+
+    /**
+     * Iterator over a forward only cursor.
+     * @param <T> element type
+     */
+    private static final class ScrollIterator<T>
+            implements Iterator<T>, Closeable {
+        private final Session session;
+        private final ScrollableResults results;
+        private final Class<T> type;
+        private boolean advanced;
+        private boolean hasNext;
+        private int count;
+
+        /**
+         * Constructor.
+         * @param session session running the cursor
+         * @param results cursor
+         * @param type element type
+         */
+        ScrollIterator(Session session, ScrollableResults results,
+                Class<T> type) {
+            this.session = session;
+            this.results = results;
+            this.type = type;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!advanced) {
+                if (count > 0 && count % CLEAR_INTERVAL == 0) {
+                    session.clear();
+                }
+                hasNext = results.next();
+                advanced = true;
+            }
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            advanced = false;
+            count++;
+            return type.cast(results.get(0));
+        }
+
+        @Override
+        public void close() throws IOException {
+            results.close();
+        }
+    }
+}
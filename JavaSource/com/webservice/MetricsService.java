@@ -0,0 +1,42 @@
+package com.webservice;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+import com.metrics.QueryBudget;
+import com.metrics.RequestMetrics;
+
+/**
+ * Metrics service, scraped by Prometheus.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+@Path("/metrics")
+public class MetricsService {
+
+    /** Content type of the Prometheus text format. */
+    private static final String PROMETHEUS_TEXT =
+            "text/plain; version=0.0.4; charset=utf-8";
+
+    private final RequestMetrics metrics;
+
+    /**
+     * Constructor.
+     * @param metrics registry of the request metrics
+     */
+    public MetricsService(RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * get the request metrics.
+     * @return metrics in Prometheus text format
+     */
+    @GET
+    @Produces(PROMETHEUS_TEXT)
+    @QueryBudget(value = 0, entityLoads = 0, transactions = 0)
+    public String getMetrics() {
+        return metrics.write();
+    }
+}
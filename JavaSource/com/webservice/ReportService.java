@@ -0,0 +1,202 @@
+package com.webservice;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.UriInfo;
+
+import com.entity.Employee;
+import com.metrics.QueryBudget;
+import com.qualifier.Resource;
+import com.security.EmployeePrincipal;
+import com.security.Secured;
+
+/**
+ * Report service for REST API, returning hour totals computed by the
+ * database over a range of weeks. Admins get the totals of all employees,
+ * or of one with the employeeId parameter; other employees get their own.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+@Secured
+@Path("/report")
+public class ReportService {
+
+    /**
+     * Hours of a timesheet row, summed over its days. Day cells may be
+     * null, and count as no hours rather than dropping the row.
+     */
+    private static final String ROW_HOURS =
+            "sum(coalesce(r.monday, 0) + coalesce(r.tuesday, 0)"
+            + " + coalesce(r.wednesday, 0) + coalesce(r.thursday, 0)"
+            + " + coalesce(r.friday, 0) + coalesce(r.saturday, 0)"
+            + " + coalesce(r.sunday, 0))";
+
+    @Inject
+    private EntityManager em;
+
+    private final WeekCalendar weekCalendar;
+
+    /**
+     * ReportService constructor.
+     * @param weekCalendar calendar of timesheet weeks
+     */
+    public ReportService(WeekCalendar weekCalendar) {
+        em = Resource.getEntityManager();
+        this.weekCalendar = weekCalendar;
+    }
+
+    /**
+     * get the hours of each employee week.
+     * @param securityContext security context holding the employee
+     * @param from year week of the first week
+     * @param to year week of the last week
+     * @param employeeId employee to report on, all if empty; admin only
+     * @param uriInfo uri information
+     * @return totals ordered by employee and year week
+     */
+    @GET
+    @Path("/hours/week")
+    @Produces(MediaType.APPLICATION_JSON)
+    @QueryBudget(value = 3, entityLoads = 2, transactions = 0)
+    public Response getWeeklyHours(
+            @Context SecurityContext securityContext,
+            @QueryParam("from") Integer from,
+            @QueryParam("to") Integer to,
+            @QueryParam("employeeId") Long employeeId,
+            @Context UriInfo uriInfo) {
+        return report(securityContext, from, to, employeeId, uriInfo,
+                "t.employeeId, t.yearWeek");
+    }
+
+    /**
+     * get the hours of each project.
+     * @param securityContext security context holding the employee
+     * @param from year week of the first week
+     * @param to year week of the last week
+     * @param employeeId employee to report on, all if empty; admin only
+     * @param uriInfo uri information
+     * @return totals ordered by project
+     */
+    @GET
+    @Path("/hours/project")
+    @Produces(MediaType.APPLICATION_JSON)
+    @QueryBudget(value = 3, entityLoads = 2, transactions = 0)
+    public Response getProjectHours(
+            @Context SecurityContext securityContext,
+            @QueryParam("from") Integer from,
+            @QueryParam("to") Integer to,
+            @QueryParam("employeeId") Long employeeId,
+            @Context UriInfo uriInfo) {
+        return report(securityContext, from, to, employeeId, uriInfo,
+                "r.projectId");
+    }
+
+    /**
+     * get the hours of each work package.
+     * @param securityContext security context holding the employee
+     * @param from year week of the first week
+     * @param to year week of the last week
+     * @param employeeId employee to report on, all if empty; admin only
+     * @param uriInfo uri information
+     * @return totals ordered by work package
+     */
+    @GET
+    @Path("/hours/workpackage")
+    @Produces(MediaType.APPLICATION_JSON)
+    @QueryBudget(value = 3, entityLoads = 2, transactions = 0)
+    public Response getWorkPackageHours(
+            @Context SecurityContext securityContext,
+            @QueryParam("from") Integer from,
+            @QueryParam("to") Integer to,
+            @QueryParam("employeeId") Long employeeId,
+            @Context UriInfo uriInfo) {
+        return report(securityContext, from, to, employeeId, uriInfo,
+                "r.workPackageId");
+    }
+
+    /**
+     * check the parameters of a report and run it.
+     * @param securityContext security context holding the employee
+     * @param from year week of the first week
+     * @param to year week of the last week
+     * @param employeeId employee to report on, all if empty; admin only
+     * @param uriInfo uri information
+     * @param groupBy grouping columns, passed to the totals constructor
+     * @return response object
+     */
+    private Response report(SecurityContext securityContext, Integer from,
+            Integer to, Long employeeId, UriInfo uriInfo, String groupBy) {
+        Map<String, String> responseMap = new HashMap<>();
+        responseMap.put("uri", uriInfo.getAbsolutePath().toString());
+
+        Employee currentEmployee =
+                EmployeePrincipal.currentEmployee(securityContext);
+        if (!currentEmployee.isAdmin()) {
+            if (employeeId != null
+                    && !employeeId.equals(currentEmployee.getEmployeeId())) {
+                responseMap.put("message",
+                        Response.Status.FORBIDDEN.toString());
+                responseMap.put("status", Response.Status.FORBIDDEN + "");
+                return Response.status(Response.Status.FORBIDDEN)
+                        .entity(responseMap).build();
+            }
+            employeeId = currentEmployee.getEmployeeId();
+        }
+        if (from == null || to == null || to < from
+                || weekCalendar.weekIndexOfYearWeek(from) < 0
+                || weekCalendar.weekIndexOfYearWeek(to) < 0) {
+            responseMap.put("message", Response.Status.BAD_REQUEST.toString());
+            responseMap.put("status", Response.Status.BAD_REQUEST + "");
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(responseMap).build();
+        }
+        List<HoursTotal> totals = getHoursTotals(groupBy, from, to,
+                employeeId);
+        return Response.status(Response.Status.OK)
+                .entity(JsonStreams.array(totals.iterator(),
+                        HoursTotal.class)).build();
+    }
+
+    /**
+     * get hour totals, grouped and summed by the database. The timesheets
+     * are read by a range scan on the (employeeid, yearweek) key for one
+     * employee, or on the (yearweek, employeeid) index for all, and their
+     * rows joined on the timesheet index.
+     * @param groupBy grouping columns, passed to the totals constructor
+     * @param from year week of the first week
+     * @param to year week of the last week
+     * @param employeeId employee id, all employees if null
+     * @return totals ordered by the grouping columns
+     */
+    private List<HoursTotal> getHoursTotals(String groupBy, int from,
+            int to, Long employeeId) {
+        TypedQuery<HoursTotal> query = em.createQuery(
+                "select new com.webservice.HoursTotal(" + groupBy + ", "
+                + ROW_HOURS + ") "
+                + "from Timesheet t, TimesheetRow r "
+                + "where r.timesheetId=t.timesheetId "
+                + "and t.yearWeek between :from and :to "
+                + (employeeId == null ? "" : "and t.employeeId=:employeeid ")
+                + "group by " + groupBy + " order by " + groupBy,
+                HoursTotal.class);
+        query.setParameter("from", from);
+        query.setParameter("to", to);
+        if (employeeId != null) {
+            query.setParameter("employeeid", employeeId);
+        }
+        return query.getResultList();
+    }
+}
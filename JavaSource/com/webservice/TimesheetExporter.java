@@ -0,0 +1,147 @@
+package com.webservice;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import com.entity.Timesheet;
+import com.entity.TimesheetRow;
+import com.google.gson.Gson;
+import com.json.JsonCodec;
+
+/**
+ * Streams timesheets in the formats read by {@link TimesheetImporter},
+ * NDJSON with one timesheet per line or CSV with one row per line, so an
+ * export can be imported back as is.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+final class TimesheetExporter {
+
+    /**
+     * Shared codec, writing null values too, so that the import reads
+     * them back as null rather than as the entity defaults.
+     */
+    private static final Gson GSON =
+            JsonCodec.GSON.newBuilder().serializeNulls().create();
+
+    /**
+     * Not instantiated.
+     */
+    private TimesheetExporter() {
+    }
+
+    /**
+     * create a streaming output writing one JSON timesheet per line.
+     * If the timesheets come from a cursor, such as {@link JsonStreams#scroll},
+     * it is closed once they are written.
+     * @param timesheets timesheets to write
+     * @return streaming output
+     */
+    static StreamingOutput ndjson(Iterator<Timesheet> timesheets) {
+        return output -> {
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(
+                        output, StandardCharsets.UTF_8));
+                while (timesheets.hasNext()) {
+                    GSON.toJson(timesheets.next(), Timesheet.class, writer);
+                    writer.write('\n');
+                }
+                writer.flush();
+            } finally {
+                close(timesheets);
+            }
+        };
+    }
+
+    /**
+     * create a streaming output writing a header line, then one line per
+     * timesheet row. Timesheets without rows have no line.
+     * If the timesheets come from a cursor, such as {@link JsonStreams#scroll},
+     * it is closed once they are written.
+     * @param timesheets timesheets to write
+     * @return streaming output
+     */
+    static StreamingOutput csv(Iterator<Timesheet> timesheets) {
+        return output -> {
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(
+                        output, StandardCharsets.UTF_8));
+                writer.write(String.join(",",
+                        TimesheetImporter.CSV_COLUMNS));
+                writer.write('\n');
+                while (timesheets.hasNext()) {
+                    Timesheet timesheet = timesheets.next();
+                    for (TimesheetRow row : timesheet.getTimesheetRows()) {
+                        writeCsvRow(writer, timesheet, row);
+                    }
+                }
+                writer.flush();
+            } finally {
+                close(timesheets);
+            }
+        };
+    }
+
+    /**
+     * write a timesheet row as a CSV line, in the order of the CSV columns.
+     * Null values are written as empty fields, read back as null.
+     * @param writer writer
+     * @param timesheet timesheet of the row
+     * @param row timesheet row
+     * @throws IOException if the line cannot be written
+     */
+    private static void writeCsvRow(Writer writer, Timesheet timesheet,
+            TimesheetRow row) throws IOException {
+        Object[] fields = {
+            timesheet.getEmployeeId(), timesheet.getYearWeek(),
+            row.getProjectId(), row.getWorkPackageId(), row.getMonday(),
+            row.getTuesday(), row.getWednesday(), row.getThursday(),
+            row.getFriday(), row.getSaturday(), row.getSunday(),
+            row.getNotes(),
+        };
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(quote(fields[i]));
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * format a CSV field, quoted if it has a separator, a quote or a line
+     * break.
+     * @param field field, empty if null
+     * @return field as written
+     */
+    private static String quote(Object field) {
+        if (field == null) {
+            return "";
+        }
+        String text = field.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0
+                && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * close the timesheets if they come from a cursor.
+     * @param timesheets timesheets
+     * @throws IOException if the cursor cannot be closed
+     */
+    private static void close(Iterator<Timesheet> timesheets)
+            throws IOException {
+        if (timesheets instanceof Closeable) {
+            ((Closeable) timesheets).close();
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.webservice;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.HibernateException;
+
+import com.entity.Timesheet;
+import com.entity.TimesheetRow;
+import com.google.gson.JsonParseException;
+import com.json.JsonCodec;
+
+/**
+ * Imports a stream of timesheets, NDJSON or CSV, reading one line at a
+ * time and writing them in batches with {@link TimesheetWriter#importAll},
+ * each batch committed as a unit. Invalid records are rejected one by one,
+ * and a failed batch rejects only its own records. When a batch has the
+ * same employee week twice, the later record supersedes the earlier one.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+class TimesheetImporter {
+
+    /** Media type of a body with one JSON timesheet per line. */
+    static final String NDJSON = "application/x-ndjson";
+
+    /** Media type of a body with one timesheet row per line. */
+    static final String CSV = "text/csv";
+
+    /**
+     * CSV columns, in order. Consecutive lines of the same employee and
+     * year week form one timesheet.
+     */
+    static final String[] CSV_COLUMNS = {
+        "employeeId", "yearWeek", "projectId", "workPackageId", "monday",
+        "tuesday", "wednesday", "thursday", "friday", "saturday", "sunday",
+        "notes",
+    };
+
+    /** Maximum number of errors reported in the summary. */
+    private static final int MAX_ERRORS = 100;
+
+    private final TimesheetWriter writer;
+
+    private final WeekCalendar weekCalendar;
+
+    private final int batchSize;
+
+    private final Map<String, Timesheet> batch = new LinkedHashMap<>();
+
+    private final Map<Timesheet, Integer> lineNumbers = new LinkedHashMap<>();
+
+    private final List<Map<String, Object>> errors = new ArrayList<>();
+
+    private int accepted;
+
+    private int rejected;
+
+    private int superseded;
+
+    /**
+     * Constructor.
+     * @param writer writer of the batches
+     * @param weekCalendar calendar validating the year weeks
+     * @param batchSize number of timesheets per batch
+     */
+    TimesheetImporter(TimesheetWriter writer, WeekCalendar weekCalendar,
+            int batchSize) {
+        this.writer = writer;
+        this.weekCalendar = weekCalendar;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * import a body with one JSON timesheet per line.
+     * @param in body
+     * @return summary of accepted, superseded and rejected records
+     * @throws IOException if the body cannot be read
+     */
+    Map<String, Object> importNdjson(Reader in) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            Timesheet timesheet;
+            try {
+                timesheet = JsonCodec.GSON.fromJson(line, Timesheet.class);
+            } catch (JsonParseException | NumberFormatException e) {
+                reject(lineNumber, "Malformed timesheet");
+                continue;
+            }
+            add(timesheet, lineNumber);
+        }
+        flush();
+        return summary();
+    }
+
+    /**
+     * import a body with one timesheet row per line, after a header line.
+     * Quoted fields may span lines, and empty number fields are read as
+     * null. A malformed row rejects the timesheet it belongs to, or the
+     * timesheet being read if its employee and year week are unreadable,
+     * so a week is never imported with missing rows.
+     * @param in body
+     * @return summary of accepted, superseded and rejected records
+     * @throws IOException if the body cannot be read
+     */
+    Map<String, Object> importCsv(Reader in) throws IOException {
+        CsvRecords records = new CsvRecords(new BufferedReader(in));
+        records.next();
+        Timesheet timesheet = null;
+        int timesheetLine = 0;
+        boolean valid = true;
+        List<String> fields;
+        while ((fields = records.next()) != null) {
+            int lineNumber = records.lineNumber();
+            if (fields.size() == 1 && fields.get(0).trim().isEmpty()) {
+                continue;
+            }
+            Long employeeId = null;
+            Integer yearWeek = null;
+            TimesheetRow row = null;
+            try {
+                if (fields.size() == CSV_COLUMNS.length) {
+                    employeeId = Long.valueOf(fields.get(0));
+                    yearWeek = Integer.valueOf(fields.get(1));
+                    row = readCsvRow(fields);
+                }
+            } catch (NumberFormatException e) {
+                row = null;
+            }
+            if (employeeId != null && yearWeek != null
+                    && (timesheet == null
+                    || !employeeId.equals(timesheet.getEmployeeId())
+                    || !yearWeek.equals(timesheet.getYearWeek()))) {
+                if (timesheet != null && valid) {
+                    add(timesheet, timesheetLine);
+                }
+                timesheet = new Timesheet();
+                timesheet.setEmployeeId(employeeId);
+                timesheet.setYearWeek(yearWeek);
+                timesheet.setTimesheetRows(new ArrayList<TimesheetRow>());
+                timesheetLine = lineNumber;
+                valid = true;
+            }
+            if (row != null) {
+                timesheet.addTimesheetRow(row);
+            } else if (timesheet == null || valid) {
+                reject(lineNumber, "Malformed timesheet row");
+                valid = false;
+            }
+        }
+        if (timesheet != null && valid) {
+            add(timesheet, timesheetLine);
+        }
+        flush();
+        return summary();
+    }
+
+    /**
+     * validate a timesheet and add it to the batch, writing the batch once
+     * full.
+     * @param timesheet timesheet
+     * @param lineNumber line of the record
+     */
+    private void add(Timesheet timesheet, int lineNumber) {
+        int weekIndex = timesheet == null || timesheet.getYearWeek() == null
+                ? -1 : weekCalendar.weekIndexOfYearWeek(
+                        timesheet.getYearWeek());
+        if (weekIndex < 0 || timesheet.getEmployeeId() == null) {
+            reject(lineNumber, "Missing employee or invalid year week");
+            return;
+        }
+        if (timesheet.getTimesheetRows() == null) {
+            timesheet.setTimesheetRows(new ArrayList<TimesheetRow>());
+        }
+        if (timesheet.getTimesheetRows().contains(null)) {
+            reject(lineNumber, "Malformed timesheet row");
+            return;
+        }
+        timesheet.setTimesheetId(null);
+        timesheet.setStartWeek(
+                new Date(weekCalendar.startMillis(weekIndex)));
+        timesheet.setEndWeek(new Date(weekCalendar.endMillis(weekIndex)));
+        for (TimesheetRow timesheetRow : timesheet.getTimesheetRows()) {
+            timesheetRow.setTimesheetRowId(null);
+        }
+        Timesheet previous = batch.remove(TimesheetWriter.weekKey(
+                timesheet.getEmployeeId(), timesheet.getYearWeek()));
+        if (previous != null) {
+            supersede(lineNumbers.remove(previous), lineNumber);
+        }
+        batch.put(TimesheetWriter.weekKey(timesheet.getEmployeeId(),
+                timesheet.getYearWeek()), timesheet);
+        lineNumbers.put(timesheet, lineNumber);
+        if (batch.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * write the pending batch in its own transaction.
+     */
+    private void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            List<Timesheet> unknown = writer.importAll(
+                    new ArrayList<>(batch.values()));
+            accepted += batch.size() - unknown.size();
+            for (Timesheet timesheet : unknown) {
+                reject(lineNumbers.get(timesheet), "Unknown employee");
+            }
+        } catch (HibernateException e) {
+            for (Timesheet timesheet : batch.values()) {
+                reject(lineNumbers.get(timesheet), "Batch not imported");
+            }
+        }
+        batch.clear();
+        lineNumbers.clear();
+    }
+
+    /**
+     * count a rejected record, and report it while under the error limit.
+     * @param lineNumber line of the record
+     * @param message reason
+     */
+    private void reject(int lineNumber, String message) {
+        rejected++;
+        report(lineNumber, message);
+    }
+
+    /**
+     * count a record superseded by a later one of the same employee week,
+     * and report it while under the error limit.
+     * @param lineNumber line of the superseded record
+     * @param byLineNumber line of the record replacing it
+     */
+    private void supersede(int lineNumber, int byLineNumber) {
+        superseded++;
+        report(lineNumber, "Superseded by line " + byLineNumber);
+    }
+
+    /**
+     * add a record to the reported errors while under the error limit.
+     * @param lineNumber line of the record
+     * @param message reason
+     */
+    private void report(int lineNumber, String message) {
+        if (errors.size() < MAX_ERRORS) {
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("line", lineNumber);
+            error.put("message", message);
+            errors.add(error);
+        }
+    }
+
+    /**
+     * create the summary of the import.
+     * @return accepted, superseded and rejected counts, with the first
+     *     errors
+     */
+    private Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("accepted", accepted);
+        summary.put("superseded", superseded);
+        summary.put("rejected", rejected);
+        summary.put("errors", errors);
+        return summary;
+    }
+
+    /**
+     * read the row columns of a CSV line.
+     * @param fields fields of the line, in the order of the CSV columns
+     * @return timesheet row
+     * @throws NumberFormatException if a number column is malformed
+     */
+    private static TimesheetRow readCsvRow(List<String> fields) {
+        int i = 2;
+        TimesheetRow row = new TimesheetRow();
+        String projectId = fields.get(i++);
+        row.setProjectId(projectId.isEmpty() ? null : Long.valueOf(projectId));
+        row.setWorkPackageId(fields.get(i++));
+        row.setMonday(readHours(fields.get(i++)));
+        row.setTuesday(readHours(fields.get(i++)));
+        row.setWednesday(readHours(fields.get(i++)));
+        row.setThursday(readHours(fields.get(i++)));
+        row.setFriday(readHours(fields.get(i++)));
+        row.setSaturday(readHours(fields.get(i++)));
+        row.setSunday(readHours(fields.get(i++)));
+        row.setNotes(fields.get(i));
+        return row;
+    }
+
+    /**
+     * read a day cell of a CSV line.
+     * @param field field
+     * @return hours, null if the field is empty
+     * @throws NumberFormatException if the field is malformed
+     */
+    private static Integer readHours(String field) {
+        return field.isEmpty() ? null : Integer.valueOf(field);
+    }
+
+    /**
+     * Reader of CSV records. Fields may be quoted, with doubled quotes and
+     * line breaks inside.
+     */
+    private static final class CsvRecords {
+        private final BufferedReader reader;
+        private int lineNumber;
+        private int nextLineNumber = 1;
+
+        /**
+         * Constructor.
+         * @param reader body
+         */
+        CsvRecords(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * get the line the last record read starts on.
+         * @return line number
+         */
+        int lineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * read the next record.
+         * @return fields, or null at the end of the body
+         * @throws IOException if the body cannot be read
+         */
+        List<String> next() throws IOException {
+            int c = reader.read();
+            if (c < 0) {
+                return null;
+            }
+            lineNumber = nextLineNumber;
+            List<String> fields = new ArrayList<>(CSV_COLUMNS.length);
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (; c >= 0; c = reader.read()) {
+                if (quoted) {
+                    if (c != '"') {
+                        if (c == '\n') {
+                            nextLineNumber++;
+                        }
+                        field.append((char) c);
+                    } else if (peek('"')) {
+                        field.append((char) c);
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        peek('\n');
+                    }
+                    nextLineNumber++;
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        /**
+         * consume the next character if it is the expected one.
+         * @param expected expected character
+         * @return true if it was consumed
+         * @throws IOException if the body cannot be read
+         */
+        private boolean peek(char expected) throws IOException {
+            reader.mark(1);
+            if (reader.read() == expected) {
+                return true;
+            }
+            reader.reset();
+            return false;
+        }
+    }
+}
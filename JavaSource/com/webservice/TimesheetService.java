@@ -1,9 +1,14 @@
 package com.webservice;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.sql.Date;
-import java.util.Calendar;
-import java.util.GregorianCalendar;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -11,26 +16,34 @@ import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.NonUniqueResultException;
-import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.transaction.Transactional;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
-import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.PATCH;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.core.UriInfo;
 
+import org.hibernate.HibernateException;
+
 import com.entity.Employee;
 import com.entity.Timesheet;
 import com.entity.TimesheetRow;
-import com.entity.Token;
+import com.metrics.QueryBudget;
 import com.qualifier.Resource;
+import com.security.EmployeePrincipal;
+import com.security.Secured;
 
 /**
  * Timesheet service for REST API.
@@ -38,77 +51,136 @@ import com.qualifier.Resource;
  * @version 1.0
  *
  */
+@Secured
 @Path("/timesheet")
 public class TimesheetService {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private static final int MAX_IMPORT_BATCH_SIZE = 1000;
+
+    /** Timesheets loaded at a time when all of them are returned. */
+    private static final int STREAM_PAGE_SIZE = 500;
+
     @Inject
     private EntityManager em;
 
+    private final WeekCalendar weekCalendar;
+
     /**
      * TimesheetService constructor.
+     * @param weekCalendar calendar of timesheet weeks
      */
-    public TimesheetService() {
+    public TimesheetService(WeekCalendar weekCalendar) {
         em = Resource.getEntityManager();
+        this.weekCalendar = weekCalendar;
     }
 
     /**
      * get timesheet by week number, returning all if empty.
-     * @param token user token
+     * With both a from and a to week instead, the timesheets of that range
+     * of weeks of the year are returned together.
+     * Without a week number the timesheets can be paged by week: when a
+     * limit is given and more weeks follow, the response has a Link header
+     * with rel "next" pointing to the next page.
+     * @param securityContext security context holding the employee
      * @param weekNumber week number
+     * @param fromWeek week number of the first week of a range
+     * @param toWeek week number of the last week of a range
+     * @param year year of the week, the current year if empty
+     * @param limit maximum number of timesheets, all if empty
+     * @param after year week of the last timesheet of the previous page
      * @param uriInfo uri info
      * @return response object
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
+    @QueryBudget(value = 4, entityLoads = -1, transactions = 0)
     public Response getTimesheet(
-            @HeaderParam("Authorization") String token,
+            @Context SecurityContext securityContext,
             @QueryParam("weekNumber") Integer weekNumber,
+            @QueryParam("fromWeek") Integer fromWeek,
+            @QueryParam("toWeek") Integer toWeek,
+            @QueryParam("year") Integer year,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("after") @DefaultValue("0") int after,
             @Context UriInfo uriInfo) {
         Map<String, String> responseMap = new HashMap<>();
         responseMap.put("uri", uriInfo.getAbsolutePath().toString());
 
-        token = token.replace("Bearer ", "");
-        if (!validateToken(token)) {
-            responseMap.put("message", Response.Status.UNAUTHORIZED.toString());
-            responseMap.put("status", Response.Status.UNAUTHORIZED + "");
-            return Response.status(Response.Status.UNAUTHORIZED)
-                    .entity(responseMap).build();
-        }
-        Employee currentEmployee = getEmployeeByToken(token);
-        if (currentEmployee == null) {
-            responseMap.put("message",
-                    Response.Status.INTERNAL_SERVER_ERROR.toString());
-            responseMap.put("status",
-                    Response.Status.INTERNAL_SERVER_ERROR + "");
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(responseMap).build();
-        }
+        Employee currentEmployee =
+                EmployeePrincipal.currentEmployee(securityContext);
 
-        if (weekNumber == null) {
-            List<Timesheet> timesheets =
-                    getTimesheetsByEmployeeId(currentEmployee.getEmployeeId());
-            if (timesheets == null) {
+        if (fromWeek != null || toWeek != null) {
+            if (weekNumber != null || fromWeek == null || toWeek == null) {
                 responseMap.put("message",
-                        Response.Status.NO_CONTENT.toString());
-                responseMap.put("status", Response.Status.NO_CONTENT + "");
-                return Response.status(Response.Status.NO_CONTENT)
+                        Response.Status.BAD_REQUEST.toString());
+                responseMap.put("status", Response.Status.BAD_REQUEST + "");
+                return Response.status(Response.Status.BAD_REQUEST)
                         .entity(responseMap).build();
             }
-            for (Timesheet timesheet : timesheets) {
-                List<TimesheetRow> timesheetRows =
-                        getTimesheetRowsByTimesheetId(
-                                timesheet.getTimesheetId());
-                if (timesheetRows == null) {
-                    continue;
+            int fromIndex = getWeekIndex(year, fromWeek);
+            int toIndex = getWeekIndex(year, toWeek);
+            if (fromIndex < 0 || toIndex < fromIndex) {
+                responseMap.put("message",
+                        Response.Status.BAD_REQUEST.toString());
+                responseMap.put("status", Response.Status.BAD_REQUEST + "");
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(responseMap).build();
+            }
+            List<Timesheet> timesheets = getTimesheetsByEmployeeIdBetween(
+                    currentEmployee.getEmployeeId(),
+                    weekCalendar.yearWeek(fromIndex),
+                    weekCalendar.yearWeek(toIndex));
+            return Response.status(Response.Status.OK).entity(
+                    JsonStreams.array(timesheets.iterator(), Timesheet.class))
+                    .build();
+        } else if (weekNumber == null) {
+            if (limit != null && limit < 1) {
+                responseMap.put("message",
+                        Response.Status.BAD_REQUEST.toString());
+                responseMap.put("status", Response.Status.BAD_REQUEST + "");
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(responseMap).build();
+            }
+            Integer pageSize = limit == null
+                    ? null : Math.min(limit, MAX_PAGE_SIZE);
+            Response.ResponseBuilder response =
+                    Response.status(Response.Status.OK);
+            Iterator<Timesheet> timesheets;
+            long employeeId = currentEmployee.getEmployeeId();
+            if (pageSize == null) {
+                timesheets = JsonStreams.pages(em, STREAM_PAGE_SIZE,
+                        last -> getTimesheetsByEmployeeId(employeeId,
+                                last == null ? after : last.getYearWeek(),
+                                STREAM_PAGE_SIZE));
+            } else {
+                List<Timesheet> page = getTimesheetsByEmployeeId(
+                        employeeId, after, pageSize + 1);
+                if (page.size() > pageSize) {
+                    page = page.subList(0, pageSize);
+                    response.link(uriInfo.getRequestUriBuilder()
+                            .replaceQueryParam("after",
+                                    page.get(pageSize - 1).getYearWeek())
+                            .build(), "next");
                 }
-                timesheet.setTimesheetRows(timesheetRows);
+                timesheets = page.iterator();
             }
-            return Response.status(Response.Status.OK)
-                    .entity(timesheets).build();
+            return response.entity(
+                    JsonStreams.array(timesheets, Timesheet.class)).build();
         } else {
-            Timesheet timesheet = getTimesheetByEmployeeIdWeekNumber(
-                    currentEmployee.getEmployeeId(), weekNumber);
+            int weekIndex = getWeekIndex(year, weekNumber);
+            if (weekIndex < 0) {
+                responseMap.put("message",
+                        Response.Status.BAD_REQUEST.toString());
+                responseMap.put("status", Response.Status.BAD_REQUEST + "");
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity(responseMap).build();
+            }
+            Timesheet timesheet = getTimesheetByEmployeeIdYearWeek(
+                    currentEmployee.getEmployeeId(),
+                    weekCalendar.yearWeek(weekIndex));
             if (timesheet == null) {
                 responseMap.put("message",
                         Response.Status.NO_CONTENT.toString());
@@ -116,8 +188,6 @@ public class TimesheetService {
                 return Response.status(Response.Status.NO_CONTENT).
                         entity("Timesheet does not exist in that week").build();
             }
-            timesheet.setTimesheetRows(getTimesheetRowsByTimesheetId(
-                    timesheet.getTimesheetId()));
             return Response.status(Response.Status.OK)
                     .entity(timesheet).build();
         }
@@ -125,7 +195,7 @@ public class TimesheetService {
 
     /**
      * get current timesheet.
-     * @param token user token
+     * @param securityContext security context holding the employee
      * @param uriInfo uri information
      * @return response object
      */
@@ -133,46 +203,34 @@ public class TimesheetService {
     @Path("/current")
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
+    @QueryBudget(value = 3, entityLoads = 4, transactions = 0)
     public Response getCurrentTimesheet(
-            @HeaderParam("Authorization") String token,
+            @Context SecurityContext securityContext,
             @Context UriInfo uriInfo) {
         Map<String, String> responseMap = new HashMap<>();
         responseMap.put("uri", uriInfo.getAbsolutePath().toString());
 
-        token = token.replace("Bearer ", "");
-        if (!validateToken(token)) {
-            responseMap.put("message", Response.Status.UNAUTHORIZED.toString());
-            responseMap.put("status", Response.Status.UNAUTHORIZED + "");
-            return Response.status(Response.Status.UNAUTHORIZED)
-                    .entity(responseMap).build();
-        }
-        Employee currentEmployee = getEmployeeByToken(token);
-        if (currentEmployee == null) {
-            responseMap.put("message",
-                    Response.Status.INTERNAL_SERVER_ERROR.toString());
-            responseMap.put("status",
-                    Response.Status.INTERNAL_SERVER_ERROR + "");
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity(responseMap).build();
-        }
-        Timesheet timesheet = getTimesheetByEmployeeIdWeekNumber(
-                currentEmployee.getEmployeeId(), getWeekNumber());
+        Employee currentEmployee =
+                EmployeePrincipal.currentEmployee(securityContext);
+        Timesheet timesheet = getTimesheetByEmployeeIdYearWeek(
+                currentEmployee.getEmployeeId(),
+                weekCalendar.yearWeek(weekCalendar.currentWeekIndex()));
         if (timesheet == null) {
             responseMap.put("message", Response.Status.NO_CONTENT.toString());
             responseMap.put("status", Response.Status.NO_CONTENT + "");
             return Response.status(Response.Status.NO_CONTENT)
                     .entity(responseMap).build();
         }
-        timesheet.setTimesheetRows(getTimesheetRowsByTimesheetId(
-                timesheet.getTimesheetId()));
         return Response.status(Response.Status.OK).entity(timesheet).build();
     }
 
     /**
      * save timesheet by week number, save current timesheet if empty.
-     * @param token user token
+     * A missing body, or a null row, is a bad request.
+     * @param securityContext security context holding the employee
      * @param timesheet timesheet object
      * @param weekNumber integer
+     * @param year year of the week, the current year if empty
      * @param uriInfo uri information
      * @return response object
      */
@@ -180,23 +238,39 @@ public class TimesheetService {
     @PUT
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
+    @QueryBudget(value = 7, entityLoads = 2, transactions = 1)
     public Response saveTimesheet(
-            @HeaderParam("Authorization") String token,
+            @Context SecurityContext securityContext,
             @QueryParam("weekNumber") Integer weekNumber,
+            @QueryParam("year") Integer year,
             @Context UriInfo uriInfo,
             Timesheet timesheet) {
         Map<String, String> responseMap = new HashMap<>();
         responseMap.put("uri", uriInfo.getAbsolutePath().toString());
 
-        token = token.replace("Bearer ", "");
-        if (!validateToken(token)) {
-            responseMap.put("message", Response.Status.UNAUTHORIZED.toString());
-            responseMap.put("status", Response.Status.UNAUTHORIZED + "");
-            return Response.status(Response.Status.UNAUTHORIZED)
+        Employee currentEmployee =
+                EmployeePrincipal.currentEmployee(securityContext);
+        int weekIndex = getWeekIndex(year, weekNumber);
+        if (weekIndex < 0 || timesheet == null
+                || timesheet.getTimesheetRows() != null
+                && timesheet.getTimesheetRows().contains(null)) {
+            responseMap.put("message", Response.Status.BAD_REQUEST.toString());
+            responseMap.put("status", Response.Status.BAD_REQUEST + "");
+            return Response.status(Response.Status.BAD_REQUEST)
                     .entity(responseMap).build();
         }
-        Employee currentEmployee = getEmployeeByToken(token);
-        if (currentEmployee == null) {
+
+        timesheet.setStartWeek(
+                new Date(weekCalendar.startMillis(weekIndex)));
+        timesheet.setEndWeek(new Date(weekCalendar.endMillis(weekIndex)));
+        timesheet.setYearWeek(weekCalendar.yearWeek(weekIndex));
+        timesheet.setEmployeeId(currentEmployee.getEmployeeId());
+        if (timesheet.getTimesheetRows() == null) {
+            timesheet.setTimesheetRows(new ArrayList<TimesheetRow>());
+        }
+        try {
+            new TimesheetWriter(em).save(timesheet);
+        } catch (HibernateException e) {
             responseMap.put("message",
                     Response.Status.INTERNAL_SERVER_ERROR.toString());
             responseMap.put("status",
@@ -204,62 +278,206 @@ public class TimesheetService {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity(responseMap).build();
         }
-        Integer weekNum = weekNumber == null ? getWeekNumber() : weekNumber;
+        return Response.status(Response.Status.OK)
+                .entity(timesheet).build();
+    }
 
-        timesheet.setStartWeek(getSaturdayByWeekNumber(weekNum));
-        timesheet.setEndWeek(getFridayByWeekNumber(weekNum));
-        timesheet.setEmployeeId(currentEmployee.getEmployeeId());
-        List<TimesheetRow> timesheetRows = timesheet.getTimesheetRows();
-        Timesheet currentTimesheet = getTimesheetByEmployeeIdWeekNumber(
-                currentEmployee.getEmployeeId(), weekNum);
-        if (currentTimesheet == null) {
-            em.getTransaction().begin();
-            em.persist(timesheet);
-            em.getTransaction().commit();
-            currentTimesheet = getTimesheetByEmployeeIdWeekNumber(
-                    currentEmployee.getEmployeeId(), weekNum);
+    /**
+     * import timesheets of any employee, as NDJSON with one timesheet per
+     * line or CSV with one row per line. Each imported timesheet replaces
+     * the rows of its employee week. The body is read as it arrives and
+     * written in batches, each committed on its own. The query budget
+     * covers a body of one batch.
+     * @param securityContext security context holding the employee
+     * @param batchSize number of timesheets per batch
+     * @param headers request headers, giving the body format
+     * @param uriInfo uri information
+     * @param body timesheets
+     * @return summary of the accepted, superseded and rejected records
+     * @throws IOException if the body cannot be read
+     */
+    @POST
+    @Path("/import")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes({TimesheetImporter.NDJSON, TimesheetImporter.CSV})
+    @QueryBudget(value = 7, entityLoads = 2, transactions = 1)
+    public Response importTimesheets(
+            @Context SecurityContext securityContext,
+            @QueryParam("batchSize") @DefaultValue("100") int batchSize,
+            @Context HttpHeaders headers,
+            @Context UriInfo uriInfo,
+            InputStream body) throws IOException {
+        Map<String, String> responseMap = new HashMap<>();
+        responseMap.put("uri", uriInfo.getAbsolutePath().toString());
+
+        Employee currentEmployee =
+                EmployeePrincipal.currentEmployee(securityContext);
+        if (!currentEmployee.isAdmin()) {
+            responseMap.put("message", Response.Status.FORBIDDEN.toString());
+            responseMap.put("status", Response.Status.FORBIDDEN + "");
+            return Response.status(Response.Status.FORBIDDEN)
+                    .entity(responseMap).build();
+        }
+        if (batchSize < 1) {
+            responseMap.put("message", Response.Status.BAD_REQUEST.toString());
+            responseMap.put("status", Response.Status.BAD_REQUEST + "");
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(responseMap).build();
+        }
+        TimesheetImporter importer = new TimesheetImporter(
+                new TimesheetWriter(em), weekCalendar,
+                Math.min(batchSize, MAX_IMPORT_BATCH_SIZE));
+        Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8);
+        Map<String, Object> summary;
+        if (MediaType.valueOf(TimesheetImporter.CSV)
+                .isCompatible(headers.getMediaType())) {
+            summary = importer.importCsv(reader);
         } else {
-            deleteTimesheetRowsByTimesheetId(currentTimesheet.getTimesheetId());
+            summary = importer.importNdjson(reader);
+        }
+        return Response.status(Response.Status.OK).entity(summary).build();
+    }
+
+    /**
+     * export the timesheets of all employees over a range of weeks, as
+     * NDJSON or CSV depending on the Accept header, in the formats read by
+     * the import. The timesheets are loaded a page at a time, and the
+     * query budget covers one page.
+     * @param securityContext security context holding the employee
+     * @param from year week of the first week
+     * @param to year week of the last week
+     * @param headers request headers, giving the accepted formats
+     * @param uriInfo uri information
+     * @return response object
+     */
+    @GET
+    @Path("/export")
+    @Produces({TimesheetImporter.NDJSON, TimesheetImporter.CSV})
+    @QueryBudget(value = 4, entityLoads = -1, transactions = 0)
+    public Response exportTimesheets(
+            @Context SecurityContext securityContext,
+            @QueryParam("from") Integer from,
+            @QueryParam("to") Integer to,
+            @Context HttpHeaders headers,
+            @Context UriInfo uriInfo) {
+        Map<String, String> responseMap = new HashMap<>();
+        responseMap.put("uri", uriInfo.getAbsolutePath().toString());
+
+        Employee currentEmployee =
+                EmployeePrincipal.currentEmployee(securityContext);
+        if (!currentEmployee.isAdmin()) {
+            responseMap.put("message", Response.Status.FORBIDDEN.toString());
+            responseMap.put("status", Response.Status.FORBIDDEN + "");
+            return Response.status(Response.Status.FORBIDDEN)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(responseMap).build();
+        }
+        if (from == null || to == null || to < from
+                || weekCalendar.weekIndexOfYearWeek(from) < 0
+                || weekCalendar.weekIndexOfYearWeek(to) < 0) {
+            responseMap.put("message", Response.Status.BAD_REQUEST.toString());
+            responseMap.put("status", Response.Status.BAD_REQUEST + "");
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(responseMap).build();
+        }
+        Iterator<Timesheet> timesheets = JsonStreams.pages(em,
+                STREAM_PAGE_SIZE, last -> last == null
+                        ? getTimesheetsBetween(from, to, from, 0)
+                        : getTimesheetsBetween(from, to, last.getYearWeek(),
+                                last.getEmployeeId()));
+        if (acceptsCsv(headers)) {
+            return Response.status(Response.Status.OK)
+                    .type(TimesheetImporter.CSV)
+                    .entity(TimesheetExporter.csv(timesheets)).build();
+        }
+        return Response.status(Response.Status.OK)
+                .type(TimesheetImporter.NDJSON)
+                .entity(TimesheetExporter.ndjson(timesheets)).build();
+    }
+
+    /**
+     * update day cells of a single timesheet row.
+     * @param securityContext security context holding the employee
+     * @param timesheetRowId timesheet row id
+     * @param uriInfo uri information
+     * @param cells hours by day name, e.g. {"monday": 8}
+     * @return response object
+     */
+    @PATCH
+    @Path("/row/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @QueryBudget(value = 4, entityLoads = 3, transactions = 1)
+    public Response updateTimesheetRow(
+            @Context SecurityContext securityContext,
+            @PathParam("id") long timesheetRowId,
+            @Context UriInfo uriInfo,
+            Map<String, Integer> cells) {
+        Map<String, String> responseMap = new HashMap<>();
+        responseMap.put("uri", uriInfo.getAbsolutePath().toString());
+
+        Employee currentEmployee =
+                EmployeePrincipal.currentEmployee(securityContext);
+        if (cells == null || cells.isEmpty()
+                || !TimesheetWriter.areDayColumns(cells.keySet())) {
+            responseMap.put("message", Response.Status.BAD_REQUEST.toString());
+            responseMap.put("status", Response.Status.BAD_REQUEST + "");
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(responseMap).build();
         }
-        for (TimesheetRow timesheetRow : timesheetRows) {
-            timesheetRow.setTimesheetId(currentTimesheet.getTimesheetId());
-            em.getTransaction().begin();
-            em.persist(timesheetRow);
-            em.getTransaction().commit();
+        boolean updated;
+        try {
+            updated = new TimesheetWriter(em).updateCells(
+                    currentEmployee.getEmployeeId(), timesheetRowId, cells);
+        } catch (HibernateException e) {
+            responseMap.put("message",
+                    Response.Status.INTERNAL_SERVER_ERROR.toString());
+            responseMap.put("status",
+                    Response.Status.INTERNAL_SERVER_ERROR + "");
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(responseMap).build();
+        }
+        if (!updated) {
+            responseMap.put("message", Response.Status.NOT_FOUND.toString());
+            responseMap.put("status", Response.Status.NOT_FOUND + "");
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(responseMap).build();
         }
-        currentTimesheet.setTimesheetRows(timesheetRows);
         return Response.status(Response.Status.OK)
-                .entity(currentTimesheet).build();
+                .entity(em.find(TimesheetRow.class, timesheetRowId)).build();
     }
 
     /**
-     * get current week number.
-     * @return week number
+     * get the week index of a week number, the current week if empty.
+     * @param year year of the week, the year of the current week if empty
+     * @param weekNumber week number
+     * @return week index, or -1 if there is no such week
      */
-    private int getWeekNumber() {
-        Calendar c = new GregorianCalendar();
-        int currentDay = c.get(Calendar.DAY_OF_WEEK);
-        int leftDays = Calendar.FRIDAY - currentDay;
-        c.add(Calendar.DATE, leftDays);
-        c.setTime(new Date(c.getTime().getTime()));
-        c.setFirstDayOfWeek(Calendar.SATURDAY);
-        return c.get(Calendar.WEEK_OF_YEAR) - 1;
+    private int getWeekIndex(Integer year, Integer weekNumber) {
+        int currentWeekIndex = weekCalendar.currentWeekIndex();
+        if (weekNumber == null) {
+            return currentWeekIndex;
+        }
+        int weekYear = year == null
+                ? weekCalendar.year(currentWeekIndex) : year;
+        return weekCalendar.weekIndex(weekYear, weekNumber);
     }
 
     /**
-     * get timesheet by employee id and week number.
+     * get timesheet by employee id and year week.
      * @param employeeId employee id
-     * @param weekNumber week number
+     * @param yearWeek year week key
      * @return timesheet object
      */
-    private Timesheet getTimesheetByEmployeeIdWeekNumber(
-            long employeeId, int weekNumber) {
-        Date saturday = getSaturdayByWeekNumber(weekNumber);
+    private Timesheet getTimesheetByEmployeeIdYearWeek(
+            long employeeId, int yearWeek) {
         TypedQuery<Timesheet> query = em.createQuery(
-                "select t from Timesheet t "
-                + "where startWeek=:startweek and employeeId=:employeeid",
+                "select distinct t from Timesheet t "
+                + "left join fetch t.timesheetRows "
+                + "where t.employeeId=:employeeid and t.yearWeek=:yearweek",
                 Timesheet.class);
-        query.setParameter("startweek", saturday);
+        query.setParameter("yearweek", yearWeek);
         query.setParameter("employeeid", employeeId);
         Timesheet timesheet;
         try {
@@ -273,119 +491,119 @@ public class TimesheetService {
     }
 
     /**
-     * get saturday by week number.
-     * @param weekNumber week number
-     * @return week number
-     */
-    private Date getSaturdayByWeekNumber(int weekNumber) {
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.WEEK_OF_YEAR, weekNumber);
-        cal.set(Calendar.DAY_OF_WEEK, Calendar.SATURDAY);
-        return new Date(cal.getTimeInMillis());
-    }
-
-    /**
-     * get friday by week number.
-     * @param weekNumber week number
-     * @return friday
-     */
-    private Date getFridayByWeekNumber(int weekNumber) {
-        Calendar cal = Calendar.getInstance();
-        cal.set(Calendar.WEEK_OF_YEAR, weekNumber);
-        cal.set(Calendar.DAY_OF_WEEK, Calendar.FRIDAY);
-        return new Date(cal.getTimeInMillis());
-    }
-
-    /**
-     * get token by token.
-     * @param token token string
-     * @return token object
+     * get a page of timesheets by employee id following a year week, with
+     * their rows. One query pages the timesheets on the
+     * (employeeid, yearweek) index and a second one loads their rows.
+     * @param employeeId employee id
+     * @param after year week of the last timesheet already returned
+     * @param maxResults maximum number of timesheets
+     * @return timesheets ordered by year week
      */
-    private Token getTokenByToken(String token) {
-        TypedQuery<Token> query = em.createQuery(
-                "select t from Token t "
-                + "where token=:token and isactive=:isactive",
-                Token.class);
-        query.setParameter("token", token);
-        query.setParameter("isactive", true);
-        Token activeToken;
-        try {
-            activeToken = query.getSingleResult();
-        } catch (NoResultException e) {
-            activeToken = null;
+    private List<Timesheet> getTimesheetsByEmployeeId(long employeeId,
+            int after, int maxResults) {
+        TypedQuery<Long> idQuery = em.createQuery(
+                "select t.timesheetId from Timesheet t "
+                + "where t.employeeId=:employeeid and t.yearWeek>:after "
+                + "order by t.yearWeek",
+                Long.class);
+        idQuery.setParameter("employeeid", employeeId);
+        idQuery.setParameter("after", after);
+        idQuery.setMaxResults(maxResults);
+        List<Long> timesheetIds = idQuery.getResultList();
+        if (timesheetIds.isEmpty()) {
+            return new ArrayList<>();
         }
-        return activeToken;
-    }
-
-    /**
-     * validate token.
-     * @param token string
-     * @return true if valid token
-     */
-    private boolean validateToken(String token) {
-        Token activeToken = getTokenByToken(token);
-        return !(activeToken == null);
-    }
-
-    /**
-     * get employee by token.
-     * @param token string
-     * @return employee object
-     */
-    private Employee getEmployeeByToken(String token) {
-        Token activeToken = em.find(Token.class, token);
-        return em.find(Employee.class, activeToken.getEmployeeId());
+        TypedQuery<Timesheet> query = em.createQuery(
+                "select distinct t from Timesheet t "
+                + "left join fetch t.timesheetRows "
+                + "where t.timesheetId in :ids order by t.yearWeek",
+                Timesheet.class);
+        query.setParameter("ids", timesheetIds);
+        return query.getResultList();
     }
 
     /**
-     * get timesheets by employee id.
+     * get the timesheets of an employee over a range of year weeks, with
+     * their rows, in one query. The timesheets are read by a range scan on
+     * the (employeeid, yearweek) index, and their rows joined on the
+     * timesheet index.
      * @param employeeId employee id
-     * @return timesheets
+     * @param from year week of the first week
+     * @param to year week of the last week
+     * @return timesheets ordered by year week
      */
-    private List<Timesheet> getTimesheetsByEmployeeId(long employeeId) {
+    private List<Timesheet> getTimesheetsByEmployeeIdBetween(long employeeId,
+            int from, int to) {
         TypedQuery<Timesheet> query = em.createQuery(
-                "select t from Timesheet t where employeeid=:employeeid",
+                "select distinct t from Timesheet t "
+                + "left join fetch t.timesheetRows "
+                + "where t.employeeId=:employeeid "
+                + "and t.yearWeek between :from and :to "
+                + "order by t.yearWeek",
                 Timesheet.class);
         query.setParameter("employeeid", employeeId);
-        List<Timesheet> timesheets;
-        try {
-            timesheets = query.getResultList();
-        } catch (NoResultException e) {
-            timesheets = null;
-        }
-        return timesheets;
+        query.setParameter("from", from);
+        query.setParameter("to", to);
+        return query.getResultList();
     }
 
     /**
-     * get timesheet rows by timesheet id.
-     * @param timesheetId timesheet id
-     * @return timesheet rows
+     * get a page of the timesheets of all employees over a range of weeks,
+     * following a timesheet, with their rows. One query pages the
+     * timesheets on the (yearweek, employeeid) index and a second one loads
+     * their rows.
+     * @param from year week of the first week
+     * @param to year week of the last week
+     * @param afterWeek year week of the last timesheet already returned
+     * @param afterEmployee employee of the last timesheet already returned,
+     *     0 if none was returned in that week
+     * @return timesheets ordered by year week and employee
      */
-    private List<TimesheetRow> getTimesheetRowsByTimesheetId(long timesheetId) {
-        TypedQuery<TimesheetRow> query = em.createQuery(
-                "select t from TimesheetRow t where timesheetid=:timesheetid",
-                TimesheetRow.class);
-        query.setParameter("timesheetid", timesheetId);
-        List<TimesheetRow> timesheetRows;
-        try {
-            timesheetRows = query.getResultList();
-        } catch (NoResultException e) {
-            timesheetRows = null;
+    private List<Timesheet> getTimesheetsBetween(int from, int to,
+            int afterWeek, long afterEmployee) {
+        TypedQuery<Long> idQuery = em.createQuery(
+                "select t.timesheetId from Timesheet t "
+                + "where t.yearWeek between :from and :to "
+                + "and (t.yearWeek>:week "
+                + "or (t.yearWeek=:week and t.employeeId>:employeeid)) "
+                + "order by t.yearWeek, t.employeeId",
+                Long.class);
+        idQuery.setParameter("from", from);
+        idQuery.setParameter("to", to);
+        idQuery.setParameter("week", afterWeek);
+        idQuery.setParameter("employeeid", afterEmployee);
+        idQuery.setMaxResults(STREAM_PAGE_SIZE);
+        List<Long> timesheetIds = idQuery.getResultList();
+        if (timesheetIds.isEmpty()) {
+            return new ArrayList<>();
         }
-        return timesheetRows;
+        TypedQuery<Timesheet> query = em.createQuery(
+                "select distinct t from Timesheet t "
+                + "left join fetch t.timesheetRows "
+                + "where t.timesheetId in :ids "
+                + "order by t.yearWeek, t.employeeId",
+                Timesheet.class);
+        query.setParameter("ids", timesheetIds);
+        return query.getResultList();
     }
 
     /**
-     * delete timesheet rows by timesheet id.
-     * @param timesheetId timesheet id
+     * tell if the client prefers CSV to NDJSON.
+     * @param headers request headers
+     * @return true if CSV comes first in the accepted media types
      */
-    @Transactional
-    private void deleteTimesheetRowsByTimesheetId(long timesheetId) {
-        Query query = em.createQuery(
-                "delete from TimesheetRow t where t.timesheetId=:timesheetid");
-        em.getTransaction().begin();
-        query.setParameter("timesheetid", timesheetId).executeUpdate();
-        em.getTransaction().commit();
+    private static boolean acceptsCsv(HttpHeaders headers) {
+        MediaType csv = MediaType.valueOf(TimesheetImporter.CSV);
+        MediaType ndjson = MediaType.valueOf(TimesheetImporter.NDJSON);
+        for (MediaType accepted : headers.getAcceptableMediaTypes()) {
+            if (accepted.isCompatible(ndjson)) {
+                return false;
+            }
+            if (accepted.isCompatible(csv)) {
+                return true;
+            }
+        }
+        return false;
     }
 
 }
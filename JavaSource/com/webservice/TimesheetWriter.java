@@ -0,0 +1,611 @@
+package com.webservice;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+
+import com.entity.Timesheet;
+import com.entity.TimesheetRow;
+import com.metrics.JdbcTimingListener;
+
+/**
+ * Writes a timesheet and its rows in a single transaction with JDBC
+ * batches, so a save costs a few round trips instead of a commit per row.
+ * Imports write many timesheets the same way, a batch at a time.
+ * Rows are reconciled by id, so unchanged rows keep their id and are not
+ * rewritten.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+class TimesheetWriter {
+
+    private static final String UPSERT_TIMESHEET =
+            "insert into timesheet (employeeid, yearweek, startweek, endweek)"
+            + " values (?, ?, ?, ?)"
+            + " on duplicate key update"
+            + " timesheetid = last_insert_id(timesheetid),"
+            + " endweek = values(endweek)";
+
+    private static final String ROW_COLUMNS = "projectid, workpackage,"
+            + " monday, tuesday, wednesday, thursday, friday, saturday,"
+            + " sunday, notes";
+
+    private static final String SELECT_ROWS =
+            "select timesheetrowid, " + ROW_COLUMNS
+            + " from timesheetrow where timesheetid = ?";
+
+    private static final String INSERT_ROW =
+            "insert into timesheetrow (" + ROW_COLUMNS + ", timesheetid)"
+            + " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_ROW =
+            "update timesheetrow set projectid = ?, workpackage = ?,"
+            + " monday = ?, tuesday = ?, wednesday = ?, thursday = ?,"
+            + " friday = ?, saturday = ?, sunday = ?, notes = ?"
+            + " where timesheetid = ? and timesheetrowid = ?";
+
+    private static final String DELETE_ROW =
+            "delete from timesheetrow where timesheetrowid = ?";
+
+    private static final String DELETE_ROWS_OF =
+            "delete from timesheetrow where timesheetid in (";
+
+    /** Day columns that can be patched on a single row. */
+    private static final Set<String> DAY_COLUMNS = new HashSet<>(
+            Arrays.asList("monday", "tuesday", "wednesday", "thursday",
+                    "friday", "saturday", "sunday"));
+
+    private final EntityManager em;
+
+    /**
+     * Constructor.
+     * @param em entity manager of the request
+     */
+    TimesheetWriter(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * save a timesheet, reconciling the rows of the same employee and week.
+     * The header is upserted on (employeeid, yearweek). Incoming rows are
+     * matched to the stored rows by id, and only the rows that were added,
+     * changed or removed are written. The generated ids are set on the
+     * timesheet and its new rows.
+     * @param timesheet timesheet with employee id, year week, weeks and rows
+     * @throws HibernateException if the save failed and was rolled back
+     */
+    void save(Timesheet timesheet) {
+        em.getTransaction().begin();
+        try {
+            em.unwrap(Session.class).doWork(
+                    JdbcTimingListener.timed(connection -> {
+                upsertTimesheet(connection, timesheet);
+                reconcileRows(connection, timesheet.getTimesheetId(),
+                        timesheet.getTimesheetRows());
+            }));
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        }
+    }
+
+    /**
+     * import timesheets in a single transaction, replacing the rows of the
+     * weeks they cover. Each statement covers the whole batch: headers are
+     * upserted in one JDBC batch, their ids selected in one query, the old
+     * rows deleted in one statement and the new rows inserted in one JDBC
+     * batch. When a week appears twice, the last timesheet wins.
+     * @param timesheets timesheets with employee id, year week, weeks and
+     *     rows
+     * @return timesheets not imported because their employee is unknown
+     * @throws HibernateException if the import failed and was rolled back
+     */
+    List<Timesheet> importAll(List<Timesheet> timesheets) {
+        List<Timesheet> unknown = new ArrayList<>();
+        em.getTransaction().begin();
+        try {
+            em.unwrap(Session.class).doWork(
+                    JdbcTimingListener.timed(connection -> {
+                Set<Long> employeeIds = selectEmployeeIds(connection,
+                        timesheets);
+                Map<String, Timesheet> weeks = new LinkedHashMap<>();
+                for (Timesheet timesheet : timesheets) {
+                    if (employeeIds.contains(timesheet.getEmployeeId())) {
+                        weeks.put(weekKey(timesheet.getEmployeeId(),
+                                timesheet.getYearWeek()), timesheet);
+                    } else {
+                        unknown.add(timesheet);
+                    }
+                }
+                if (weeks.isEmpty()) {
+                    return;
+                }
+                upsertTimesheets(connection, weeks.values());
+                selectTimesheetIds(connection, weeks);
+                List<TimesheetRow> rows = new ArrayList<>();
+                for (Timesheet timesheet : weeks.values()) {
+                    for (TimesheetRow timesheetRow
+                            : timesheet.getTimesheetRows()) {
+                        timesheetRow.setTimesheetId(
+                                timesheet.getTimesheetId());
+                        rows.add(timesheetRow);
+                    }
+                }
+                deleteRowsOf(connection, weeks.values());
+                insertRows(connection, rows);
+            }));
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        }
+        return unknown;
+    }
+
+    /**
+     * check if columns can be set by {@link #updateCells}.
+     * @param columns column names
+     * @return true if every column is a day column
+     */
+    static boolean areDayColumns(Collection<String> columns) {
+        return DAY_COLUMNS.containsAll(columns);
+    }
+
+    /**
+     * update day cells of a single row owned by an employee.
+     * @param employeeId employee owning the timesheet of the row
+     * @param timesheetRowId timesheet row id
+     * @param cells hours by day column, see {@link #areDayColumns}
+     * @return true if the row was found and updated
+     * @throws HibernateException if the update failed and was rolled back
+     */
+    boolean updateCells(long employeeId, long timesheetRowId,
+            Map<String, Integer> cells) {
+        StringBuilder sql = new StringBuilder(
+                "update timesheetrow r join timesheet t"
+                + " on r.timesheetid = t.timesheetid set ");
+        if (!areDayColumns(cells.keySet())) {
+            throw new IllegalArgumentException(cells.keySet().toString());
+        }
+        String separator = "";
+        for (String column : cells.keySet()) {
+            sql.append(separator).append("r.").append(column).append(" = ?");
+            separator = ", ";
+        }
+        sql.append(" where r.timesheetrowid = ? and t.employeeid = ?");
+        int[] updated = new int[1];
+        em.getTransaction().begin();
+        try {
+            em.unwrap(Session.class).doWork(
+                    JdbcTimingListener.timed(connection -> {
+                try (PreparedStatement ps =
+                        connection.prepareStatement(sql.toString())) {
+                    int i = 1;
+                    for (Integer hours : cells.values()) {
+                        setInt(ps, i++, hours);
+                    }
+                    ps.setLong(i++, timesheetRowId);
+                    ps.setLong(i, employeeId);
+                    updated[0] = ps.executeUpdate();
+                }
+            }));
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        }
+        return updated[0] > 0;
+    }
+
+    /**
+     * insert the timesheet header, or find the existing one for the week.
+     * @param connection jdbc connection
+     * @param timesheet timesheet, its id is set from the header row
+     * @throws SQLException on database error
+     */
+    private void upsertTimesheet(Connection connection, Timesheet timesheet)
+            throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                UPSERT_TIMESHEET, Statement.RETURN_GENERATED_KEYS)) {
+            int i = 1;
+            ps.setLong(i++, timesheet.getEmployeeId());
+            ps.setInt(i++, timesheet.getYearWeek());
+            ps.setDate(i++, timesheet.getStartWeek());
+            ps.setDate(i, timesheet.getEndWeek());
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                keys.next();
+                timesheet.setTimesheetId(keys.getLong(1));
+            }
+        }
+    }
+
+    /**
+     * select which employees of a batch of timesheets exist.
+     * @param connection jdbc connection
+     * @param timesheets timesheets
+     * @return ids of the existing employees
+     * @throws SQLException on database error
+     */
+    private Set<Long> selectEmployeeIds(Connection connection,
+            List<Timesheet> timesheets) throws SQLException {
+        Set<Long> requested = new HashSet<>();
+        for (Timesheet timesheet : timesheets) {
+            requested.add(timesheet.getEmployeeId());
+        }
+        Set<Long> existing = new HashSet<>();
+        if (requested.isEmpty()) {
+            return existing;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "select employeeid from Employee where employeeid in ("
+                + placeholders(requested.size(), "?") + ")")) {
+            int i = 1;
+            for (Long employeeId : requested) {
+                ps.setLong(i++, employeeId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getLong(1));
+                }
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * insert timesheet headers, or keep the existing ones, as one batch.
+     * @param connection jdbc connection
+     * @param timesheets timesheets
+     * @throws SQLException on database error
+     */
+    private void upsertTimesheets(Connection connection,
+            Collection<Timesheet> timesheets) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                UPSERT_TIMESHEET)) {
+            for (Timesheet timesheet : timesheets) {
+                int i = 1;
+                ps.setLong(i++, timesheet.getEmployeeId());
+                ps.setInt(i++, timesheet.getYearWeek());
+                ps.setDate(i++, timesheet.getStartWeek());
+                ps.setDate(i, timesheet.getEndWeek());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * select the ids of timesheet headers on the (employeeid, yearweek)
+     * key, and set them on the timesheets.
+     * @param connection jdbc connection
+     * @param weeks timesheets by employee and year week
+     * @throws SQLException on database error
+     */
+    private void selectTimesheetIds(Connection connection,
+            Map<String, Timesheet> weeks) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "select timesheetid, employeeid, yearweek from timesheet"
+                + " where (employeeid, yearweek) in ("
+                + placeholders(weeks.size(), "(?, ?)") + ")")) {
+            int i = 1;
+            for (Timesheet timesheet : weeks.values()) {
+                ps.setLong(i++, timesheet.getEmployeeId());
+                ps.setInt(i++, timesheet.getYearWeek());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    weeks.get(weekKey(rs.getLong(2), rs.getInt(3)))
+                            .setTimesheetId(rs.getLong(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * delete every row of timesheets in one statement.
+     * @param connection jdbc connection
+     * @param timesheets timesheets with their ids
+     * @throws SQLException on database error
+     */
+    private void deleteRowsOf(Connection connection,
+            Collection<Timesheet> timesheets) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                DELETE_ROWS_OF + placeholders(timesheets.size(), "?")
+                + ")")) {
+            int i = 1;
+            for (Timesheet timesheet : timesheets) {
+                ps.setLong(i++, timesheet.getTimesheetId());
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * write the difference between the stored and the incoming rows.
+     * @param connection jdbc connection
+     * @param timesheetId timesheet id
+     * @param timesheetRows incoming rows, ids of new rows are set
+     * @throws SQLException on database error
+     */
+    private void reconcileRows(Connection connection, long timesheetId,
+            List<TimesheetRow> timesheetRows) throws SQLException {
+        Map<Long, TimesheetRow> stored = selectRows(connection, timesheetId);
+        List<TimesheetRow> inserts = new ArrayList<>();
+        List<TimesheetRow> updates = new ArrayList<>();
+        for (TimesheetRow timesheetRow : timesheetRows) {
+            timesheetRow.setTimesheetId(timesheetId);
+            TimesheetRow storedRow = timesheetRow.getTimesheetRowId() == null
+                    ? null : stored.remove(timesheetRow.getTimesheetRowId());
+            if (storedRow == null) {
+                timesheetRow.setTimesheetRowId(null);
+                inserts.add(timesheetRow);
+            } else if (!sameValues(storedRow, timesheetRow)) {
+                updates.add(timesheetRow);
+            }
+        }
+        deleteRows(connection, stored.keySet());
+        updateRows(connection, updates);
+        insertRows(connection, inserts);
+    }
+
+    /**
+     * select the stored rows of a timesheet.
+     * @param connection jdbc connection
+     * @param timesheetId timesheet id
+     * @return rows by id
+     * @throws SQLException on database error
+     */
+    private Map<Long, TimesheetRow> selectRows(Connection connection,
+            long timesheetId) throws SQLException {
+        Map<Long, TimesheetRow> rows = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(SELECT_ROWS)) {
+            ps.setLong(1, timesheetId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    TimesheetRow row = readRow(rs);
+                    row.setTimesheetId(timesheetId);
+                    rows.put(row.getTimesheetRowId(), row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * delete rows by id as one batch.
+     * @param connection jdbc connection
+     * @param timesheetRowIds ids of the rows to delete
+     * @throws SQLException on database error
+     */
+    private void deleteRows(Connection connection,
+            Collection<Long> timesheetRowIds) throws SQLException {
+        if (timesheetRowIds.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(DELETE_ROW)) {
+            for (Long timesheetRowId : timesheetRowIds) {
+                ps.setLong(1, timesheetRowId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * update changed rows as one batch.
+     * @param connection jdbc connection
+     * @param timesheetRows rows to update
+     * @throws SQLException on database error
+     */
+    private void updateRows(Connection connection,
+            List<TimesheetRow> timesheetRows) throws SQLException {
+        if (timesheetRows.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(UPDATE_ROW)) {
+            for (TimesheetRow timesheetRow : timesheetRows) {
+                int i = bindRow(ps, timesheetRow);
+                ps.setLong(i++, timesheetRow.getTimesheetId());
+                ps.setLong(i, timesheetRow.getTimesheetRowId());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * insert new rows as one batch.
+     * @param connection jdbc connection
+     * @param timesheetRows rows, their ids are set from the generated keys
+     * @throws SQLException on database error
+     */
+    private void insertRows(Connection connection,
+            List<TimesheetRow> timesheetRows) throws SQLException {
+        if (timesheetRows.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                INSERT_ROW, Statement.RETURN_GENERATED_KEYS)) {
+            for (TimesheetRow timesheetRow : timesheetRows) {
+                int i = bindRow(ps, timesheetRow);
+                ps.setLong(i, timesheetRow.getTimesheetId());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                for (TimesheetRow timesheetRow : timesheetRows) {
+                    if (!keys.next()) {
+                        break;
+                    }
+                    timesheetRow.setTimesheetRowId(keys.getLong(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * create a comma separated list of parameter placeholders.
+     * @param count number of placeholders
+     * @param placeholder placeholder, e.g. "?" or "(?, ?)"
+     * @return placeholder list
+     */
+    private static String placeholders(int count, String placeholder) {
+        return String.join(", ", Collections.nCopies(count, placeholder));
+    }
+
+    /**
+     * create the key of an employee week.
+     * @param employeeId employee id
+     * @param yearWeek year week
+     * @return key
+     */
+    static String weekKey(long employeeId, int yearWeek) {
+        return employeeId + ":" + yearWeek;
+    }
+
+    /**
+     * read a row selected with the row id followed by the row columns.
+     * @param rs result set positioned on the row
+     * @return timesheet row without timesheet id
+     * @throws SQLException on database error
+     */
+    private static TimesheetRow readRow(ResultSet rs) throws SQLException {
+        int i = 1;
+        TimesheetRow row = new TimesheetRow();
+        row.setTimesheetRowId(rs.getLong(i++));
+        row.setProjectId(getLong(rs, i++));
+        row.setWorkPackageId(rs.getString(i++));
+        row.setMonday(getInt(rs, i++));
+        row.setTuesday(getInt(rs, i++));
+        row.setWednesday(getInt(rs, i++));
+        row.setThursday(getInt(rs, i++));
+        row.setFriday(getInt(rs, i++));
+        row.setSaturday(getInt(rs, i++));
+        row.setSunday(getInt(rs, i++));
+        row.setNotes(rs.getString(i));
+        return row;
+    }
+
+    /**
+     * check if two rows hold the same values.
+     * @param a first row
+     * @param b second row
+     * @return true if every column is equal
+     */
+    private static boolean sameValues(TimesheetRow a, TimesheetRow b) {
+        return Objects.equals(a.getProjectId(), b.getProjectId())
+                && Objects.equals(a.getWorkPackageId(), b.getWorkPackageId())
+                && Objects.equals(a.getMonday(), b.getMonday())
+                && Objects.equals(a.getTuesday(), b.getTuesday())
+                && Objects.equals(a.getWednesday(), b.getWednesday())
+                && Objects.equals(a.getThursday(), b.getThursday())
+                && Objects.equals(a.getFriday(), b.getFriday())
+                && Objects.equals(a.getSaturday(), b.getSaturday())
+                && Objects.equals(a.getSunday(), b.getSunday())
+                && Objects.equals(a.getNotes(), b.getNotes());
+    }
+
+    /**
+     * bind the row columns, in the order of the row column list.
+     * @param ps row insert or update statement
+     * @param row timesheet row
+     * @return index of the next parameter
+     * @throws SQLException on database error
+     */
+    private static int bindRow(PreparedStatement ps, TimesheetRow row)
+            throws SQLException {
+        int i = 1;
+        setLong(ps, i++, row.getProjectId());
+        ps.setString(i++, row.getWorkPackageId());
+        setInt(ps, i++, row.getMonday());
+        setInt(ps, i++, row.getTuesday());
+        setInt(ps, i++, row.getWednesday());
+        setInt(ps, i++, row.getThursday());
+        setInt(ps, i++, row.getFriday());
+        setInt(ps, i++, row.getSaturday());
+        setInt(ps, i++, row.getSunday());
+        ps.setString(i++, row.getNotes());
+        return i;
+    }
+
+    /**
+     * bind a nullable long.
+     * @param ps statement
+     * @param index parameter index
+     * @param value value or null
+     * @throws SQLException on database error
+     */
+    private static void setLong(PreparedStatement ps, int index, Long value)
+            throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
+
+    /**
+     * read a nullable long.
+     * @param rs result set
+     * @param index column index
+     * @return value or null
+     * @throws SQLException on database error
+     */
+    private static Long getLong(ResultSet rs, int index) throws SQLException {
+        long value = rs.getLong(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    /**
+     * read a nullable integer.
+     * @param rs result set
+     * @param index column index
+     * @return value or null
+     * @throws SQLException on database error
+     */
+    private static Integer getInt(ResultSet rs, int index)
+            throws SQLException {
+        int value = rs.getInt(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    /**
+     * bind a nullable integer.
+     * @param ps statement
+     * @param index parameter index
+     * @param value value or null
+     * @throws SQLException on database error
+     */
+    private static void setInt(PreparedStatement ps, int index, Integer value)
+            throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, value);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.util.Map;
 import java.util.UUID;
 
 import javax.inject.Inject;
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.TypedQuery;
@@ -20,9 +21,16 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
+import org.hibernate.HibernateException;
+
 import com.entity.Employee;
 import com.entity.Token;
+import com.metrics.QueryBudget;
 import com.qualifier.Resource;
+import com.security.RevocationSet;
+import com.security.TokenCache;
+import com.security.TokenExpiryScheduler;
+import com.security.TokenSigner;
 
 /**
  * Token service.
@@ -35,11 +43,29 @@ public class TokenService {
     @Inject
     private EntityManager em;
 
+    private final TokenCache tokenCache;
+
+    private final TokenSigner tokenSigner;
+
+    private final RevocationSet revocationSet;
+
+    private final TokenExpiryScheduler expiryScheduler;
+
     /**
      * Constructor, initialize entity manager.
+     * @param tokenCache cache of resolved tokens, evicted on rotation
+     * @param tokenSigner signer of stateless tokens, null to issue uuids
+     * @param revocationSet revoked stateless tokens
+     * @param expiryScheduler scheduler deactivating expired tokens
      */
-    public TokenService() {
+    public TokenService(TokenCache tokenCache, TokenSigner tokenSigner,
+            RevocationSet revocationSet,
+            TokenExpiryScheduler expiryScheduler) {
         em = Resource.getEntityManager();
+        this.tokenCache = tokenCache;
+        this.tokenSigner = tokenSigner;
+        this.revocationSet = revocationSet;
+        this.expiryScheduler = expiryScheduler;
     }
 
     /**
@@ -52,44 +78,57 @@ public class TokenService {
     @POST
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
+    @QueryBudget(value = 4, entityLoads = 1, transactions = 1)
     public Response createToken(
             @Context UriInfo uriInfo, Employee employee) {
         Map<String, String> responseMap = new HashMap<>();
         responseMap.put("uri", uriInfo.getAbsolutePath().toString());
 
-        Employee currentEmployee;
-        Token activeToken;
-        try {
+        Employee currentEmployee = null;
+        if (employee != null) {
             currentEmployee = getEmployeeByUsernameAndPassword(
                     employee.getUserName(), employee.getPassword());
-            if (currentEmployee == null) {
-                throw new NullPointerException();
-            }
-            activeToken = getActiveTokenByUsername(employee.getUserName());
-        } catch (NullPointerException e) {
+        }
+        if (currentEmployee == null) {
             responseMap.put("message", Response.Status.UNAUTHORIZED.toString());
             responseMap.put("status", Response.Status.UNAUTHORIZED + "");
             return Response.status(Response.Status.UNAUTHORIZED)
                     .entity(responseMap).build();
         }
 
-        if (activeToken != null) {
-            activeToken.setActive(false);
-            em.getTransaction().begin();
-            em.merge(activeToken);
-            em.getTransaction().commit();
-        }
         Token newToken = new Token();
-        newToken.setToken(generateUuid());
         newToken.setActive(true);
         newToken.setAdmin(currentEmployee.isAdmin());
         newToken.setDateCreated(Date.valueOf(LocalDate.now()));
         newToken.setExpiryDate(Date.valueOf(LocalDate.now().plusMonths(2)));
         newToken.setEmployeeId(currentEmployee.getEmployeeId());
         newToken.setUsername(currentEmployee.getUserName());
-        em.getTransaction().begin();
-        em.persist(newToken);
-        em.getTransaction().commit();
+        if (tokenSigner == null) {
+            newToken.setToken(generateUuid());
+        } else {
+            newToken.setToken(tokenSigner.sign(newToken));
+        }
+        Map<UUID, Long> deactivated;
+        try {
+            deactivated = new TokenWriter(em).rotate(newToken);
+        } catch (HibernateException e) {
+            responseMap.put("message",
+                    Response.Status.INTERNAL_SERVER_ERROR.toString());
+            responseMap.put("status",
+                    Response.Status.INTERNAL_SERVER_ERROR + "");
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(responseMap).build();
+        }
+        Cache cache = em.getEntityManagerFactory().getCache();
+        for (Map.Entry<UUID, Long> oldToken : deactivated.entrySet()) {
+            cache.evict(Token.class, oldToken.getKey());
+            tokenCache.evict(oldToken.getKey());
+            if (tokenSigner != null) {
+                revocationSet.revoke(oldToken.getKey(), oldToken.getValue());
+            }
+        }
+        expiryScheduler.schedule(newToken.getKey(),
+                newToken.getExpiryDate().getTime());
         return Response.status(Response.Status.OK).entity(newToken).build();
     }
 
@@ -116,25 +155,6 @@ public class TokenService {
         return currentEmployee;
     }
 
-    /**
-     * get active token by username.
-     * @param username username
-     * @return token object
-     */
-    private Token getActiveTokenByUsername(String username) {
-        TypedQuery<Token> query = em.createQuery(
-                "select t from Token t where username=:username and isactive=1",
-                Token.class);
-        query.setParameter("username", username);
-        Token activeToken;
-        try {
-            activeToken = query.getSingleResult();
-        } catch (NoResultException e) {
-            activeToken = null;
-        }
-        return activeToken;
-    }
-
     /**
      * generate uuid.
      * @return uuid string
@@ -0,0 +1,153 @@
+package com.webservice;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+
+import com.entity.Token;
+import com.metrics.JdbcTimingListener;
+
+/**
+ * Rotates the token of an employee in a single transaction, so a login
+ * costs one commit instead of one per token.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+class TokenWriter {
+
+    private static final String SELECT_ACTIVE =
+            "select tokenkey, expirydate from token"
+            + " where employeeid = ? and isactive = 1 for update";
+
+    /**
+     * Deactivates the active tokens of an employee. datecreated is the
+     * first timestamp column, which MySQL would otherwise set to the time
+     * of the update.
+     */
+    private static final String DEACTIVATE =
+            "update token set isactive = 0, datecreated = datecreated"
+            + " where employeeid = ? and isactive = 1";
+
+    private static final String INSERT_TOKEN =
+            "insert into token (tokenkey, employeeid, datecreated,"
+            + " expirydate, isadmin, username, isactive)"
+            + " values (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int KEY_LENGTH = 16;
+
+    private final EntityManager em;
+
+    /**
+     * Constructor.
+     * @param em entity manager of the request
+     */
+    TokenWriter(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * deactivate the active tokens of the employee of a new token, and
+     * insert the new token. The active tokens are locked first, so
+     * concurrent logins of an employee are serialized and leave a single
+     * active token. The statements bypass the persistence context, so
+     * callers evict the returned tokens from the caches.
+     * @param newToken token to insert, with its key and employee id
+     * @return expiry time in millis of each deactivated token, by key
+     * @throws HibernateException if the rotation failed and was rolled back
+     */
+    Map<UUID, Long> rotate(Token newToken) {
+        Map<UUID, Long> deactivated = new LinkedHashMap<>();
+        em.getTransaction().begin();
+        try {
+            em.unwrap(Session.class).doWork(
+                    JdbcTimingListener.timed(connection -> {
+                selectActive(connection, newToken.getEmployeeId(),
+                        deactivated);
+                if (!deactivated.isEmpty()) {
+                    deactivate(connection, newToken.getEmployeeId());
+                }
+                insert(connection, newToken);
+            }));
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+        }
+        return deactivated;
+    }
+
+    /**
+     * lock and read the active tokens of an employee.
+     * @param connection jdbc connection
+     * @param employeeId employee id
+     * @param active map filled with expiry time in millis by key
+     * @throws SQLException on database error
+     */
+    private void selectActive(Connection connection, long employeeId,
+            Map<UUID, Long> active) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                SELECT_ACTIVE)) {
+            ps.setLong(1, employeeId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ByteBuffer key = ByteBuffer.wrap(rs.getBytes(1));
+                    Date expiryDate = rs.getDate(2);
+                    active.put(new UUID(key.getLong(), key.getLong()),
+                            expiryDate == null
+                                    ? Long.MAX_VALUE : expiryDate.getTime());
+                }
+            }
+        }
+    }
+
+    /**
+     * deactivate the active tokens of an employee.
+     * @param connection jdbc connection
+     * @param employeeId employee id
+     * @throws SQLException on database error
+     */
+    private void deactivate(Connection connection, long employeeId)
+            throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                DEACTIVATE)) {
+            ps.setLong(1, employeeId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * insert a token.
+     * @param connection jdbc connection
+     * @param token token
+     * @throws SQLException on database error
+     */
+    private void insert(Connection connection, Token token)
+            throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                INSERT_TOKEN)) {
+            ps.setBytes(1, ByteBuffer.allocate(KEY_LENGTH)
+                    .putLong(token.getKey().getMostSignificantBits())
+                    .putLong(token.getKey().getLeastSignificantBits())
+                    .array());
+            ps.setLong(2, token.getEmployeeId());
+            ps.setDate(3, token.getDateCreated());
+            ps.setDate(4, token.getExpiryDate());
+            ps.setBoolean(5, token.isAdmin());
+            ps.setString(6, token.getUsername());
+            ps.setBoolean(7, token.isActive());
+            ps.executeUpdate();
+        }
+    }
+}
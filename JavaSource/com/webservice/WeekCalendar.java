@@ -0,0 +1,197 @@
+package com.webservice;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable table of timesheet weeks for a span of years.
+ * A week runs from saturday to friday, and week 1 of a year starts on the
+ * first saturday of that year. Weeks are identified by an index into the
+ * table, so every lookup is arithmetic and array access without creating
+ * calendar or date objects.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class WeekCalendar {
+
+    /** Multiplier of the year in a year week key. */
+    public static final int YEAR_WEEK_FACTOR = 100;
+
+    private static final int DAYS_PER_WEEK = 7;
+
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    private final int firstYear;
+
+    private final long firstEpochDay;
+
+    private final int[] firstIndexOfYear;
+
+    private final int[] yearWeeks;
+
+    private final long[] startMillis;
+
+    private final long[] endMillis;
+
+    private final TimeZone timeZone;
+
+    /**
+     * Constructor, precomputes the weeks of the years in the span.
+     * @param firstYear first year covered
+     * @param lastYear last year covered
+     */
+    public WeekCalendar(int firstYear, int lastYear) {
+        if (lastYear < firstYear) {
+            throw new IllegalArgumentException("Last year " + lastYear
+                    + " before first year " + firstYear);
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        this.timeZone = TimeZone.getTimeZone(zone);
+        this.firstYear = firstYear;
+        LocalDate first = firstSaturday(firstYear);
+        LocalDate end = firstSaturday(lastYear + 1);
+        this.firstEpochDay = first.toEpochDay();
+        int weeks = (int) ((end.toEpochDay() - firstEpochDay) / DAYS_PER_WEEK);
+        this.firstIndexOfYear = new int[lastYear - firstYear + 2];
+        this.yearWeeks = new int[weeks];
+        this.startMillis = new long[weeks];
+        this.endMillis = new long[weeks];
+        int index = 0;
+        for (int year = firstYear; year <= lastYear; year++) {
+            firstIndexOfYear[year - firstYear] = index;
+            LocalDate next = firstSaturday(year + 1);
+            LocalDate saturday = firstSaturday(year);
+            for (int week = 1; saturday.isBefore(next); week++) {
+                yearWeeks[index] = year * YEAR_WEEK_FACTOR + week;
+                startMillis[index] = saturday.atStartOfDay(zone)
+                        .toInstant().toEpochMilli();
+                endMillis[index] = saturday.plusDays(DAYS_PER_WEEK - 1)
+                        .atStartOfDay(zone).toInstant().toEpochMilli();
+                saturday = saturday.plusWeeks(1);
+                index++;
+            }
+        }
+        firstIndexOfYear[lastYear - firstYear + 1] = index;
+    }
+
+    /**
+     * get the index of the current week.
+     * @return week index
+     */
+    public int currentWeekIndex() {
+        long now = System.currentTimeMillis();
+        long epochDay = Math.floorDiv(now + timeZone.getOffset(now),
+                MILLIS_PER_DAY);
+        return weekIndexOfEpochDay(epochDay);
+    }
+
+    /**
+     * get the index of the week containing a date.
+     * @param millis date in millis
+     * @return week index
+     */
+    public int weekIndexOf(long millis) {
+        long epochDay = Math.floorDiv(millis + timeZone.getOffset(millis),
+                MILLIS_PER_DAY);
+        return weekIndexOfEpochDay(epochDay);
+    }
+
+    /**
+     * get the index of a week number in a year.
+     * @param year year
+     * @param weekNumber week number, starting at 1
+     * @return week index, or -1 if the year has no such week
+     */
+    public int weekIndex(int year, int weekNumber) {
+        int yearOffset = year - firstYear;
+        if (yearOffset < 0 || yearOffset >= firstIndexOfYear.length - 1
+                || weekNumber < 1) {
+            return -1;
+        }
+        int index = firstIndexOfYear[yearOffset] + weekNumber - 1;
+        return index < firstIndexOfYear[yearOffset + 1] ? index : -1;
+    }
+
+    /**
+     * get the index of a year week key.
+     * @param yearWeek year * 100 + week number
+     * @return week index, or -1 if there is no such week
+     */
+    public int weekIndexOfYearWeek(int yearWeek) {
+        return weekIndex(yearWeek / YEAR_WEEK_FACTOR,
+                yearWeek % YEAR_WEEK_FACTOR);
+    }
+
+    /**
+     * get the year week key of a week, year * 100 + week number.
+     * @param index week index
+     * @return year week key
+     */
+    public int yearWeek(int index) {
+        return yearWeeks[index];
+    }
+
+    /**
+     * get the year of a week.
+     * @param index week index
+     * @return year
+     */
+    public int year(int index) {
+        return yearWeeks[index] / YEAR_WEEK_FACTOR;
+    }
+
+    /**
+     * get the week number of a week in its year.
+     * @param index week index
+     * @return week number
+     */
+    public int weekNumber(int index) {
+        return yearWeeks[index] % YEAR_WEEK_FACTOR;
+    }
+
+    /**
+     * get the start of the saturday starting a week.
+     * @param index week index
+     * @return start of the week in millis
+     */
+    public long startMillis(int index) {
+        return startMillis[index];
+    }
+
+    /**
+     * get the start of the friday ending a week.
+     * @param index week index
+     * @return start of the last day of the week in millis
+     */
+    public long endMillis(int index) {
+        return endMillis[index];
+    }
+
+    /**
+     * get the index of the week containing a day.
+     * @param epochDay day since the epoch
+     * @return week index
+     */
+    private int weekIndexOfEpochDay(long epochDay) {
+        long index = Math.floorDiv(epochDay - firstEpochDay, DAYS_PER_WEEK);
+        if (index < 0 || index >= yearWeeks.length) {
+            throw new IllegalStateException(
+                    "Day " + epochDay + " outside of the week calendar");
+        }
+        return (int) index;
+    }
+
+    /**
+     * get the first saturday of a year.
+     * @param year year
+     * @return first saturday
+     */
+    private static LocalDate firstSaturday(int year) {
+        return LocalDate.of(year, 1, 1)
+                .with(TemporalAdjusters.nextOrSame(DayOfWeek.SATURDAY));
+    }
+}
@@ -0,0 +1,50 @@
+-- Indexes for the lookups done by the services, and foreign keys
+-- between the tables of the schedule database.
+
+-- Timesheets of deleted employees go first, so their rows are removed
+-- with the other orphans.
+delete from timesheet
+    where employeeid not in (select employeeid from Employee);
+delete from timesheetrow
+    where timesheetid not in (select timesheetid from timesheet);
+delete from token
+    where employeeid not in (select employeeid from Employee);
+
+-- The unique key below rejects existing duplicate weeks. The rows of
+-- each duplicate are moved to the latest timesheet of its week, then
+-- the emptied timesheets are deleted.
+update timesheetrow r
+    join timesheet d on d.timesheetid = r.timesheetid
+    join (select employeeid, startweek, max(timesheetid) as kept
+            from timesheet
+            group by employeeid, startweek
+            having count(*) > 1) k
+        on k.employeeid = d.employeeid and k.startweek = d.startweek
+    set r.timesheetid = k.kept
+    where d.timesheetid <> k.kept;
+delete d from timesheet d
+    join (select employeeid, startweek, max(timesheetid) as kept
+            from timesheet
+            group by employeeid, startweek
+            having count(*) > 1) k
+        on k.employeeid = d.employeeid and k.startweek = d.startweek
+    where d.timesheetid <> k.kept;
+
+alter table Employee
+    add index idx_employee_username (username);
+
+alter table timesheet
+    add unique key uk_timesheet_employee_week (employeeid, startweek),
+    add constraint fk_timesheet_employee foreign key (employeeid)
+        references Employee (employeeid) on delete cascade;
+
+alter table timesheetrow
+    add index idx_timesheetrow_timesheet (timesheetid),
+    add constraint fk_timesheetrow_timesheet foreign key (timesheetid)
+        references timesheet (timesheetid) on delete cascade;
+
+alter table token
+    add index idx_token_username_active (username, isactive),
+    add index idx_token_employee_active (employeeid, isactive),
+    add constraint fk_token_employee foreign key (employeeid)
+        references Employee (employeeid) on delete cascade;
@@ -0,0 +1,38 @@
+-- Integer week key, year * 100 + week number, where week 1 starts on the
+-- first saturday of the year. It replaces startweek for lookups, and the
+-- new unique key also backs the employee foreign key.
+
+alter table timesheet
+    add column yearweek integer;
+
+-- endweek is the first timestamp column, which MySQL updates on every
+-- change of its row unless it is set explicitly.
+update timesheet
+    set yearweek = year(startweek) * 100
+        + floor((dayofyear(startweek) - 1) / 7) + 1,
+        endweek = endweek;
+
+-- Start weeks that fall in the same year week would break the unique
+-- key, so their rows are merged into the latest timesheet of the week.
+update timesheetrow r
+    join timesheet d on d.timesheetid = r.timesheetid
+    join (select employeeid, yearweek, max(timesheetid) as kept
+            from timesheet
+            group by employeeid, yearweek
+            having count(*) > 1) k
+        on k.employeeid = d.employeeid and k.yearweek = d.yearweek
+    set r.timesheetid = k.kept
+    where d.timesheetid <> k.kept;
+delete d from timesheet d
+    join (select employeeid, yearweek, max(timesheetid) as kept
+            from timesheet
+            group by employeeid, yearweek
+            having count(*) > 1) k
+        on k.employeeid = d.employeeid and k.yearweek = d.yearweek
+    where d.timesheetid <> k.kept;
+
+alter table timesheet
+    add unique key uk_timesheet_employee_yearweek (employeeid, yearweek);
+
+alter table timesheet
+    drop index uk_timesheet_employee_week;
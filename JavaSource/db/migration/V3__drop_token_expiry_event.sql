@@ -0,0 +1,7 @@
+-- Tokens are deactivated by the application when they expire, so the
+-- daily event and its procedure are dropped. The event called a procedure
+-- that was never created.
+
+drop event if exists myevent;
+
+drop procedure if exists deactivatetoken;
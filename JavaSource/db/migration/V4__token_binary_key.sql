@@ -0,0 +1,19 @@
+-- Tokens are stored under a fixed width binary(16) key, the first 128 bits
+-- of the SHA-256 digest of the token string, instead of the token itself
+-- as a varchar(256) primary key. Every secondary index of the table
+-- carries the primary key, so they shrink too.
+
+alter table token
+    add column tokenkey binary(16);
+
+-- datecreated is the first timestamp column, which MySQL updates on
+-- every change of its row unless it is set explicitly.
+update token
+    set tokenkey = unhex(left(sha2(token, 256), 32)),
+        datecreated = datecreated;
+
+alter table token
+    modify tokenkey binary(16) not null,
+    drop primary key,
+    add primary key (tokenkey),
+    drop column token;
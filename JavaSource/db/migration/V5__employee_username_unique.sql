@@ -0,0 +1,7 @@
+-- Usernames are unique regardless of case. The username column uses the
+-- default case-insensitive collation, so a unique key on it rejects names
+-- that only differ by case, and replaces the plain index.
+
+alter table Employee
+    add unique key uk_employee_username (username),
+    drop index idx_employee_username;
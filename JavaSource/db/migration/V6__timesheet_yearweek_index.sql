@@ -0,0 +1,5 @@
+-- Exports read every timesheet of a range of weeks. An index led by
+-- yearweek serves the range, in the order the export writes it.
+
+alter table timesheet
+    add index idx_timesheet_yearweek_employee (yearweek, employeeid);
@@ -0,0 +1,98 @@
+package com.json;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.entity.Employee;
+import com.entity.Timesheet;
+import com.entity.TimesheetRow;
+
+/**
+ * JSON serialization of the entities with the shared codec, both ways:
+ * an employee, and a timesheet of ten rows.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private static final int ROWS = 10;
+
+    private Employee employee;
+
+    private Timesheet timesheet;
+
+    private String employeeJson;
+
+    private String timesheetJson;
+
+    @Setup
+    public void setUp() {
+        employee = new Employee("Cameron", "Lay", "Cam.Lay123", "Cam.Lay123",
+                false);
+        employee.setEmployeeId(2L);
+        employee.setCreatedDate(new Date(System.currentTimeMillis()));
+        timesheet = new Timesheet();
+        timesheet.setTimesheetId(3L);
+        timesheet.setEmployeeId(2L);
+        timesheet.setYearWeek(201845);
+        timesheet.setStartWeek(new Date(System.currentTimeMillis()));
+        timesheet.setEndWeek(new Date(System.currentTimeMillis()));
+        List<TimesheetRow> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            TimesheetRow row = new TimesheetRow();
+            row.setTimesheetRowId(11L + i);
+            row.setTimesheetId(3L);
+            row.setProjectId((long) i);
+            row.setWorkPackageId("wp" + i);
+            row.setMonday(8);
+            row.setTuesday(8);
+            row.setWednesday(8);
+            row.setThursday(8);
+            row.setFriday(8);
+            row.setNotes("notes of row " + i);
+            rows.add(row);
+        }
+        timesheet.setTimesheetRows(rows);
+        employeeJson = JsonCodec.GSON.toJson(employee);
+        timesheetJson = JsonCodec.GSON.toJson(timesheet);
+    }
+
+    @Benchmark
+    public String writeEmployee() {
+        return JsonCodec.GSON.toJson(employee);
+    }
+
+    @Benchmark
+    public Employee readEmployee() {
+        return JsonCodec.GSON.fromJson(employeeJson, Employee.class);
+    }
+
+    @Benchmark
+    public String writeTimesheet() {
+        return JsonCodec.GSON.toJson(timesheet);
+    }
+
+    @Benchmark
+    public Timesheet readTimesheet() {
+        return JsonCodec.GSON.fromJson(timesheetJson, Timesheet.class);
+    }
+}
@@ -0,0 +1,91 @@
+package com.security;
+
+import java.sql.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.entity.Employee;
+import com.entity.Token;
+
+/**
+ * Validation of a bearer token by the authentication filter, without the
+ * database: a signed token is verified by its HMAC and checked against
+ * the revoked tokens, an opaque one is hashed to its key and found in the
+ * token cache.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenBenchmark {
+
+    private static final int CACHED_TOKENS = 10000;
+
+    private TokenSigner signer;
+
+    private TokenCache cache;
+
+    private RevocationSet revocationSet;
+
+    private String signed;
+
+    private String forged;
+
+    private String opaque;
+
+    @Setup
+    public void setUp() {
+        signer = new TokenSigner("benchmark secret");
+        Token token = new Token();
+        token.setEmployeeId(2L);
+        token.setAdmin(false);
+        token.setUsername("Cam.Lay123");
+        token.setExpiryDate(new Date(System.currentTimeMillis()
+                + TimeUnit.HOURS.toMillis(1)));
+        signed = signer.sign(token);
+        forged = signed.substring(0, signed.length() - 2) + "AA";
+        revocationSet = new RevocationSet();
+
+        cache = new TokenCache(CACHED_TOKENS, TimeUnit.HOURS.toMillis(1));
+        long expiresAt = token.getExpiryDate().getTime();
+        for (int i = 0; i < CACHED_TOKENS; i++) {
+            opaque = UUID.randomUUID().toString();
+            Employee employee = new Employee();
+            employee.setEmployeeId((long) i);
+            cache.put(Token.keyOf(opaque),
+                    new EmployeePrincipal(employee, expiresAt));
+        }
+    }
+
+    @Benchmark
+    public boolean verifySigned() {
+        EmployeePrincipal principal = signer.verify(signed);
+        return principal != null
+                && !revocationSet.isRevoked(Token.keyOf(signed));
+    }
+
+    @Benchmark
+    public EmployeePrincipal rejectForged() {
+        return signer.verify(forged);
+    }
+
+    @Benchmark
+    public EmployeePrincipal lookupCached() {
+        return cache.get(Token.keyOf(opaque));
+    }
+}
@@ -0,0 +1,155 @@
+package com.security;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.EmbeddedDatabase;
+
+/**
+ * Lookup of a token by its primary key in a table of many historical
+ * tokens, keyed as before migration V4, by the varchar(256) token string,
+ * and as after it, by the binary(16) key of the token. Both tables have
+ * the secondary indexes of migration V1 and hold the same tokens; their
+ * data and index sizes are printed once they are filled.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenKeyBenchmark {
+
+    private static final String COLUMNS = " employeeid integer,"
+            + " datecreated timestamp null, expirydate timestamp null,"
+            + " isadmin boolean, username varchar(256), isactive boolean,"
+            + " index idx_token_username_active (username, isactive),"
+            + " index idx_token_employee_active (employeeid, isactive))";
+
+    /** Random UUID string, as issued before the binary keys. */
+    private static final String RANDOM_UUID = "insert(insert(insert(insert("
+            + "md5(concat(rand(), i)), 9, 0, '-'), 14, 0, '-'), 19, 0, '-'),"
+            + " 24, 0, '-')";
+
+    /** Number of tokens looked up in turn, picked among the stored ones. */
+    private static final int SAMPLES = 4096;
+
+    @Param("1000000")
+    private int tokens;
+
+    private Connection connection;
+
+    private PreparedStatement byString;
+
+    private PreparedStatement byKey;
+
+    private final List<String> strings = new ArrayList<>();
+
+    private final List<byte[]> keys = new ArrayList<>();
+
+    private int next;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = EmbeddedDatabase.connect();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists token_string");
+            statement.execute("drop table if exists token_key");
+            statement.execute("create table token_string ("
+                    + " token varchar(256) primary key," + COLUMNS);
+            statement.execute("create table token_key ("
+                    + " tokenkey binary(16) primary key," + COLUMNS);
+            statement.execute("insert into token_string"
+                    + " with recursive n (i) as (select 1 union all"
+                    + " select i + 1 from n where i < " + tokens + ")"
+                    + " select " + RANDOM_UUID + ", i mod 1000, now(),"
+                    + " now(), 0, concat('user', i mod 1000), 0 from n");
+            statement.execute("insert into token_key"
+                    + " select unhex(left(sha2(token, 256), 32)), employeeid,"
+                    + " datecreated, expirydate, isadmin, username, isactive"
+                    + " from token_string");
+            statement.execute("analyze table token_string, token_key");
+            try (ResultSet rs = statement.executeQuery("select token,"
+                    + " unhex(left(sha2(token, 256), 32)) from token_string"
+                    + " order by rand() limit " + SAMPLES)) {
+                while (rs.next()) {
+                    strings.add(rs.getString(1));
+                    keys.add(rs.getBytes(2));
+                }
+            }
+            try (ResultSet rs = statement.executeQuery("select table_name,"
+                    + " data_length, index_length from information_schema"
+                    + ".tables where table_schema = database()"
+                    + " and table_name in ('token_string', 'token_key')")) {
+                while (rs.next()) {
+                    System.out.println(rs.getString(1) + ": data "
+                            + rs.getLong(2) / 1024 + " KB, indexes "
+                            + rs.getLong(3) / 1024 + " KB");
+                }
+            }
+        }
+        byString = connection.prepareStatement(
+                "select employeeid, isactive from token_string"
+                + " where token = ?");
+        byKey = connection.prepareStatement(
+                "select employeeid, isactive from token_key"
+                + " where tokenkey = ?");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table token_string");
+            statement.execute("drop table token_key");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public long lookupByString() throws SQLException {
+        byString.setString(1, strings.get(next++ % SAMPLES));
+        return read(byString);
+    }
+
+    @Benchmark
+    public long lookupByKey() throws SQLException {
+        byKey.setBytes(1, keys.get(next++ % SAMPLES));
+        return read(byKey);
+    }
+
+    /**
+     * run a lookup and read its row.
+     * @param ps lookup statement, with its key set
+     * @return employee id of the token
+     * @throws SQLException on database error
+     */
+    private static long read(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) {
+                throw new IllegalStateException("Token not found");
+            }
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.webservice;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.EmbeddedDatabase;
+import com.entity.Timesheet;
+import com.entity.TimesheetRow;
+import com.qualifier.Resource;
+import com.qualifier.SchemaMigrator;
+
+/**
+ * The persist path of PUT /timesheet: a timesheet saved by the timesheet
+ * writer to the embedded database, either with one row edited, or with
+ * all of its rows replaced by new ones.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-XX:+IgnoreUnrecognizedVMOptions",
+    "--add-opens=java.base/java.lang=ALL-UNNAMED"})
+@State(Scope.Benchmark)
+public class SaveTimesheetBenchmark {
+
+    /** Employee of db.sql the timesheets are saved for. */
+    private static final long EMPLOYEE_ID = 2;
+
+    private static final int ROWS = 5;
+
+    private EntityManager em;
+
+    private TimesheetWriter writer;
+
+    private Timesheet edited;
+
+    private Timesheet replaced;
+
+    private int hours;
+
+    @Setup
+    public void setUp() {
+        EmbeddedDatabase.start();
+        new SchemaMigrator().migrate();
+        em = Resource.createEntityManager();
+        writer = new TimesheetWriter(em);
+        WeekCalendar weekCalendar = new WeekCalendar(2000, 2099);
+        edited = timesheet(weekCalendar, weekCalendar.weekIndex(2030, 1));
+        writer.save(edited);
+        replaced = timesheet(weekCalendar, weekCalendar.weekIndex(2030, 2));
+    }
+
+    @TearDown
+    public void tearDown() {
+        em.close();
+    }
+
+    @Benchmark
+    public Timesheet saveEditedRow() {
+        hours = hours == 8 ? 4 : 8;
+        edited.getTimesheetRows().get(0).setMonday(hours);
+        writer.save(edited);
+        return edited;
+    }
+
+    @Benchmark
+    public Timesheet saveReplacedRows() {
+        for (TimesheetRow row : replaced.getTimesheetRows()) {
+            row.setTimesheetRowId(null);
+        }
+        writer.save(replaced);
+        return replaced;
+    }
+
+    /**
+     * create a timesheet of the benchmark employee.
+     * @param weekCalendar calendar of timesheet weeks
+     * @param index week index
+     * @return timesheet with its rows
+     */
+    private static Timesheet timesheet(WeekCalendar weekCalendar,
+            int index) {
+        Timesheet timesheet = new Timesheet();
+        timesheet.setEmployeeId(EMPLOYEE_ID);
+        timesheet.setYearWeek(weekCalendar.yearWeek(index));
+        timesheet.setStartWeek(new Date(weekCalendar.startMillis(index)));
+        timesheet.setEndWeek(new Date(weekCalendar.endMillis(index)));
+        List<TimesheetRow> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            TimesheetRow row = new TimesheetRow();
+            row.setProjectId((long) i);
+            row.setWorkPackageId("wp" + i);
+            row.setMonday(8);
+            row.setTuesday(8);
+            row.setWednesday(8);
+            row.setThursday(8);
+            row.setFriday(8);
+            row.setNotes("row " + i);
+            rows.add(row);
+        }
+        timesheet.setTimesheetRows(rows);
+        return timesheet;
+    }
+}
@@ -0,0 +1,119 @@
+package com.webservice;
+
+import static com.TestApplication.content;
+import static com.TestApplication.invoke;
+import static com.TestApplication.login;
+import static com.TestApplication.request;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.EmbeddedDatabase;
+
+/**
+ * A quarter of timesheets read from GET /timesheet, in process on the
+ * embedded database: one request with fromWeek and toWeek, against one
+ * request per week with weekNumber, as clients did before the range.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-XX:+IgnoreUnrecognizedVMOptions",
+    "--add-opens=java.base/java.lang=ALL-UNNAMED"})
+@State(Scope.Benchmark)
+public class TimesheetRangeBenchmark {
+
+    /** Employee of db.sql, and its id, whose timesheets are read. */
+    private static final String EMPLOYEE = "Cam.Lay123";
+
+    private static final long EMPLOYEE_ID = 2;
+
+    private static final int YEAR = 2020;
+
+    private static final int WEEKS = 13;
+
+    private String token;
+
+    @Setup
+    public void setUp() throws SQLException {
+        token = login(EMPLOYEE);
+        WeekCalendar weekCalendar = new WeekCalendar(YEAR, YEAR);
+        try (Connection connection = EmbeddedDatabase.connect();
+                Statement statement = connection.createStatement()) {
+            for (int week = 1; week <= WEEKS; week++) {
+                int index = weekCalendar.weekIndex(YEAR, week);
+                statement.execute("insert into timesheet"
+                        + " (employeeid, yearweek, startweek, endweek)"
+                        + " values (" + EMPLOYEE_ID + ", "
+                        + weekCalendar.yearWeek(index) + ", from_unixtime("
+                        + weekCalendar.startMillis(index) / 1000
+                        + "), from_unixtime("
+                        + weekCalendar.endMillis(index) / 1000 + "))"
+                        + " on duplicate key update"
+                        + " timesheetid = timesheetid");
+            }
+            statement.execute("insert into timesheetrow (timesheetid,"
+                    + " projectid, workpackage, monday, tuesday, wednesday,"
+                    + " thursday, friday, notes)"
+                    + " select t.timesheetid, p.projectid, 'wp', 8, 8, 8,"
+                    + " 8, 8, '' from timesheet t, (select 1 as projectid"
+                    + " union all select 2 union all select 3"
+                    + " union all select 4 union all select 5) p"
+                    + " where t.employeeid = " + EMPLOYEE_ID
+                    + " and t.yearweek between "
+                    + (YEAR * WeekCalendar.YEAR_WEEK_FACTOR + 1) + " and "
+                    + (YEAR * WeekCalendar.YEAR_WEEK_FACTOR + WEEKS)
+                    + " and not exists (select 1 from"
+                    + " timesheetrow r where r.timesheetid = t.timesheetid)");
+        }
+        if (range() == 0 || singleWeeks() == 0) {
+            throw new IllegalStateException("No timesheets read");
+        }
+    }
+
+    @Benchmark
+    public int range() {
+        return get("/timesheet?fromWeek=1&toWeek=" + WEEKS + "&year="
+                + YEAR);
+    }
+
+    @Benchmark
+    public int singleWeeks() {
+        int length = 0;
+        for (int week = 1; week <= WEEKS; week++) {
+            length += get("/timesheet?weekNumber=" + week + "&year=" + YEAR);
+        }
+        return length;
+    }
+
+    /**
+     * get timesheets of the employee.
+     * @param uri uri with its query
+     * @return length of the response body
+     */
+    private int get(String uri) {
+        MockHttpResponse response = invoke(request("GET", uri, token));
+        if (response.getStatus() != 200) {
+            throw new IllegalStateException(uri + " returned "
+                    + response.getStatus() + ": " + content(response));
+        }
+        return response.getOutput().length;
+    }
+}
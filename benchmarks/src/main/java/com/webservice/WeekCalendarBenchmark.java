@@ -0,0 +1,109 @@
+package com.webservice;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Week computations of the timesheet service: the current week, a week
+ * number to its start and end, and a date to its week, with the calendar
+ * built by the application. The calendar methods are the GregorianCalendar
+ * code the service ran before the week calendar, as the baseline.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WeekCalendarBenchmark {
+
+    private static final int YEAR = 2018;
+
+    private static final int WEEK_NUMBER = 45;
+
+    private static final int DAYS_PER_WEEK = 7;
+
+    private WeekCalendar weekCalendar;
+
+    private long date;
+
+    @Setup
+    public void setUp() {
+        weekCalendar = new WeekCalendar(2000, 2099);
+        date = System.currentTimeMillis();
+    }
+
+    @Benchmark
+    public int currentWeek() {
+        return weekCalendar.yearWeek(weekCalendar.currentWeekIndex());
+    }
+
+    @Benchmark
+    public long weekBounds() {
+        int index = weekCalendar.weekIndex(YEAR, WEEK_NUMBER);
+        return weekCalendar.startMillis(index)
+                + weekCalendar.endMillis(index);
+    }
+
+    @Benchmark
+    public int weekOfDate() {
+        return weekCalendar.weekNumber(weekCalendar.weekIndexOf(date));
+    }
+
+    @Benchmark
+    public int calendarCurrentWeek() {
+        Calendar c = new GregorianCalendar();
+        int currentDay = c.get(Calendar.DAY_OF_WEEK);
+        int leftDays = Calendar.FRIDAY - currentDay;
+        c.add(Calendar.DATE, leftDays);
+        c.setTime(new Date(c.getTime().getTime()));
+        c.setFirstDayOfWeek(Calendar.SATURDAY);
+        return Calendar.getInstance().get(Calendar.YEAR)
+                * WeekCalendar.YEAR_WEEK_FACTOR
+                + c.get(Calendar.WEEK_OF_YEAR) - 1;
+    }
+
+    @Benchmark
+    public long calendarWeekBounds() {
+        return calendarDay(YEAR, WEEK_NUMBER, Calendar.SATURDAY).getTime()
+                + calendarDay(YEAR, WEEK_NUMBER, Calendar.FRIDAY).getTime();
+    }
+
+    @Benchmark
+    public int calendarWeekOfDate() {
+        LocalDate day = new Date(date).toLocalDate();
+        return (day.getDayOfYear() - 1) / DAYS_PER_WEEK + 1;
+    }
+
+    /**
+     * get a day of a week number, as the service did.
+     * @param year year of the week
+     * @param weekNumber week number
+     * @param dayOfWeek calendar day of the week
+     * @return day
+     */
+    private static Date calendarDay(int year, int weekNumber,
+            int dayOfWeek) {
+        Calendar cal = Calendar.getInstance();
+        cal.set(Calendar.YEAR, year);
+        cal.set(Calendar.WEEK_OF_YEAR, weekNumber);
+        cal.set(Calendar.DAY_OF_WEEK, dayOfWeek);
+        return new Date(cal.getTimeInMillis());
+    }
+}
@@ -0,0 +1,173 @@
+package com;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+
+/**
+ * MariaDB server started once for the tests, with the schedule database
+ * created by db.sql, run over JDBC rather than with the command line
+ * client. The migrations are left to the application, which applies them
+ * when it starts, as in a deployment. The port of the server is set as
+ * the test.db.port system property, read by the test persistence unit.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public final class EmbeddedDatabase {
+
+    private static final String PORT_PROPERTY = "test.db.port";
+
+    private static final String DATABASE = "schedule";
+
+    private static final String SCRIPT = "db.sql";
+
+    private static DB db;
+
+    private static int port;
+
+    /**
+     * Not instantiated.
+     */
+    private EmbeddedDatabase() {
+    }
+
+    /**
+     * start the server and create the database, unless already done.
+     * The server is stopped when the JVM exits.
+     */
+    public static synchronized void start() {
+        if (db != null) {
+            return;
+        }
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        config.setPort(0);
+        config.setSecurityDisabled(false);
+        config.addArg("--lower-case-table-names=1");
+        if ("root".equals(System.getProperty("user.name"))) {
+            config.addArg("--user=root");
+        }
+        try {
+            DB server = DB.newEmbeddedDB(config.build());
+            server.start();
+            port = server.getConfiguration().getPort();
+            System.setProperty(PORT_PROPERTY, String.valueOf(port));
+            createDatabase(DATABASE).close();
+            db = server;
+        } catch (ManagedProcessException | SQLException e) {
+            throw new IllegalStateException("Cannot start the database", e);
+        }
+    }
+
+    /**
+     * open a connection to the schedule database.
+     * @return connection, closed by the caller
+     * @throws SQLException on database error
+     */
+    public static Connection connect() throws SQLException {
+        return connect(DATABASE);
+    }
+
+    /**
+     * open a connection to a database created by {@link #create}.
+     * @param database database name
+     * @return connection, closed by the caller
+     * @throws SQLException on database error
+     */
+    public static Connection connect(String database) throws SQLException {
+        start();
+        return open(database);
+    }
+
+    /**
+     * create a database from db.sql, not migrated.
+     * @param database database name
+     * @return connection to the new database, closed by the caller
+     * @throws SQLException on database error
+     */
+    public static Connection create(String database) throws SQLException {
+        start();
+        return createDatabase(database);
+    }
+
+    /**
+     * create a database from db.sql on the started server.
+     * @param database database name
+     * @return connection to the new database, closed by the caller
+     * @throws SQLException on database error
+     */
+    private static Connection createDatabase(String database)
+            throws SQLException {
+        try (Connection connection = open("");
+                Statement statement = connection.createStatement()) {
+            statement.execute("create database " + database);
+        }
+        Connection connection = open(database);
+        runScript(connection);
+        return connection;
+    }
+
+    /**
+     * open a connection to a database of the server.
+     * @param database database name, empty for none
+     * @return connection, closed by the caller
+     * @throws SQLException on database error
+     */
+    private static Connection open(String database) throws SQLException {
+        return DriverManager.getConnection("jdbc:mysql://localhost:" + port
+                + "/" + database + "?useSSL=false", "root", "");
+    }
+
+    /**
+     * run the statements of db.sql that follow its use statement; the
+     * ones before it create the database and its user. Delimiter lines
+     * change the end of statement marker, as in the mysql client.
+     * @param connection connection to the schedule database
+     * @throws SQLException on database error
+     */
+    private static void runScript(Connection connection)
+            throws SQLException {
+        InputStream in = EmbeddedDatabase.class.getClassLoader()
+                .getResourceAsStream(SCRIPT);
+        if (in == null) {
+            throw new IllegalStateException("Missing " + SCRIPT);
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8));
+                Statement statement = connection.createStatement()) {
+            boolean used = false;
+            String delimiter = ";";
+            StringBuilder sql = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (!used) {
+                    used = trimmed.equalsIgnoreCase("use " + DATABASE + ";");
+                } else if (trimmed.toUpperCase().startsWith("DELIMITER ")) {
+                    delimiter = trimmed.substring("DELIMITER ".length());
+                } else {
+                    sql.append(line).append('\n');
+                    if (trimmed.endsWith(delimiter)) {
+                        sql.setLength(sql.lastIndexOf(delimiter));
+                        statement.execute(sql.toString());
+                        sql.setLength(0);
+                    }
+                }
+            }
+            if (sql.toString().trim().length() > 0) {
+                statement.execute(sql.toString());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + SCRIPT, e);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com;
+
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.SecurityContext;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.jboss.resteasy.core.Dispatcher;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.spi.ResteasyDeployment;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.qualifier.Resource;
+
+/**
+ * The REST application, deployed once in process on the embedded
+ * database. Requests go through the same filters as on the server, and
+ * each one gets its own entity manager, closed when it ends as the
+ * request listener does on the server.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public final class TestApplication {
+
+    private static Dispatcher dispatcher;
+
+    /**
+     * Not instantiated.
+     */
+    private TestApplication() {
+    }
+
+    /**
+     * serve a request.
+     * @param request request, with a path relative to the application path
+     * @return response
+     */
+    public static MockHttpResponse invoke(MockHttpRequest request) {
+        MockHttpResponse response = new MockHttpResponse();
+        try {
+            dispatcher().invoke(request, response);
+        } finally {
+            Resource.closeEntityManager();
+        }
+        return response;
+    }
+
+    /**
+     * create a request.
+     * @param method http method
+     * @param uri uri relative to the application path
+     * @param token bearer token, or null
+     * @return request
+     */
+    public static MockHttpRequest request(String method, String uri,
+            String token) {
+        MockHttpRequest request;
+        try {
+            request = MockHttpRequest.create(method, uri);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(uri, e);
+        }
+        if (token != null) {
+            request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        }
+        return request;
+    }
+
+    /**
+     * create a request with a body.
+     * @param method http method
+     * @param uri uri relative to the application path
+     * @param token bearer token, or null
+     * @param type media type of the body
+     * @param body body
+     * @return request
+     */
+    public static MockHttpRequest request(String method, String uri,
+            String token, String type, String body) {
+        return request(method, uri, token).contentType(type)
+                .content(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * get the body of a response.
+     * @param response response
+     * @return body as text
+     */
+    public static String content(MockHttpResponse response) {
+        return new String(response.getOutput(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * log in as an employee of db.sql.
+     * @param userName user name, also the password in db.sql
+     * @return bearer token
+     */
+    public static String login(String userName) {
+        MockHttpResponse response = invoke(request("POST", "/registration",
+                null, MediaType.APPLICATION_JSON,
+                "{\"userName\":\"" + userName + "\",\"password\":\""
+                + userName + "\"}"));
+        if (response.getStatus() != 200) {
+            throw new IllegalStateException("Cannot log in " + userName
+                    + ": " + content(response));
+        }
+        JsonObject token = new JsonParser().parse(content(response))
+                .getAsJsonObject();
+        return token.get("token").getAsString();
+    }
+
+    /**
+     * deploy a resource of the tests next to those of the application.
+     * @param resource resource instance
+     */
+    public static void addResource(Object resource) {
+        dispatcher().getRegistry().addSingletonResource(resource);
+    }
+
+    /**
+     * get the statistics of the persistence unit, enabled by the test
+     * persistence unit.
+     * @return statistics
+     */
+    public static Statistics statistics() {
+        dispatcher();
+        return Resource.getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * get the dispatcher, deploying the application on first use.
+     * @return dispatcher
+     */
+    private static synchronized Dispatcher dispatcher() {
+        if (dispatcher == null) {
+            EmbeddedDatabase.start();
+            ResteasyDeployment deployment = new ResteasyDeployment();
+            deployment.setApplication(new App());
+            deployment.start();
+            dispatcher = deployment.getDispatcher();
+            dispatcher.getDefaultContextObjects().put(SecurityContext.class,
+                    new AnonymousSecurityContext());
+        }
+        return dispatcher;
+    }
+
+    /**
+     * Security context of a request without servlet authentication, as
+     * set by the container before the authentication filter replaces it.
+     */
+    private static final class AnonymousSecurityContext
+            implements SecurityContext {
+
+        @Override
+        public Principal getUserPrincipal() {
+            return null;
+        }
+
+        @Override
+        public boolean isUserInRole(String role) {
+            return false;
+        }
+
+        @Override
+        public boolean isSecure() {
+            return false;
+        }
+
+        @Override
+        public String getAuthenticationScheme() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.metrics;
+
+import static com.TestApplication.content;
+import static com.TestApplication.invoke;
+import static com.TestApplication.request;
+import static org.junit.Assert.assertEquals;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.TestApplication;
+
+/**
+ * Checks that the requests failing with an exception no resource method
+ * handled are still ended and counted.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class MetricsFilterTest {
+
+    private static final String ENDPOINT = "FailingResource.fail";
+
+    /**
+     * Resource failing as a bug in a service would.
+     */
+    @Path("/failing")
+    public static class FailingResource {
+
+        /**
+         * fail.
+         * @return nothing
+         */
+        @GET
+        @QueryBudget(value = 0, entityLoads = 0, transactions = 0)
+        public String fail() {
+            throw new IllegalStateException("failing resource");
+        }
+    }
+
+    @BeforeClass
+    public static void deploy() {
+        TestApplication.addResource(new FailingResource());
+    }
+
+    @Test
+    public void countsUnhandledException() {
+        assertEquals(500, invoke(request("GET", "/failing", null))
+                .getStatus());
+        assertEquals(500, invoke(request("GET", "/failing", null))
+                .getStatus());
+
+        assertEquals(0, metric("http_requests_in_flight{endpoint=\""
+                + ENDPOINT + "\"}"));
+        assertEquals(2, metric("http_responses_total{endpoint=\""
+                + ENDPOINT + "\",status=\"500\"}"));
+    }
+
+    @Test
+    public void keepsWebApplicationExceptionStatus() {
+        assertEquals(401, invoke(request("GET", "/timesheet", null))
+                .getStatus());
+        assertEquals(404, invoke(request("GET", "/missing", null))
+                .getStatus());
+    }
+
+    /**
+     * read a sample from the metrics endpoint.
+     * @param sample metric name with its labels
+     * @return value, 0 if absent
+     */
+    private static long metric(String sample) {
+        Matcher matcher = Pattern.compile("(?m)^" + Pattern.quote(sample)
+                + " (\\d+)$").matcher(content(invoke(
+                        request("GET", "/metrics", null))));
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+}
@@ -0,0 +1,297 @@
+package com.metrics;
+
+import static com.TestApplication.content;
+import static com.TestApplication.invoke;
+import static com.TestApplication.login;
+import static com.TestApplication.request;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.core.MediaType;
+
+import org.hibernate.stat.Statistics;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.junit.Test;
+
+import com.TestApplication;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+
+/**
+ * Checks that every resource method stays within its {@link QueryBudget}.
+ * Each request is the first one of a fresh token, so the bearer token is
+ * looked up in the database, and the second level cache is off: the
+ * counts are those of cold caches. The statements are read from the
+ * metrics endpoint, which counts the work done on the JDBC connection too,
+ * and checked against the Hibernate statistics of the same request, which
+ * count the entities loaded and the transactions begun.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class QueryBudgetTest {
+
+    private static final String ADMIN = "Test123Test123";
+
+    private static final String EMPLOYEE = "Cam.Lay123";
+
+    private static final String JSON = MediaType.APPLICATION_JSON;
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private static final String CSV = "text/csv";
+
+    private static final String ROW = "\"projectId\":1,"
+            + "\"workPackageId\":\"wp1\",\"monday\":8,\"tuesday\":8,"
+            + "\"wednesday\":8,\"thursday\":8,\"friday\":8,\"notes\":\"n\"";
+
+    @Test
+    public void createToken() {
+        String body = "{\"userName\":\"Edmund.Ham123\","
+                + "\"password\":\"Edmund.Ham123\"}";
+        assertWithinBudget("TokenService.createToken", 200,
+                request("POST", "/registration", null, JSON, body));
+        assertWithinBudget("TokenService.createToken", 200,
+                request("POST", "/registration", null, JSON, body));
+    }
+
+    @Test
+    public void getEmployees() {
+        assertWithinBudget("EmployeeService.getEmployees", 200,
+                request("GET", "/user", login(ADMIN)));
+        assertWithinBudget("EmployeeService.getEmployees", 200,
+                request("GET", "/user?limit=2", login(ADMIN)));
+    }
+
+    @Test
+    public void getEmployee() {
+        assertWithinBudget("EmployeeService.getEmployee", 200,
+                request("GET", "/user/1", login(ADMIN)));
+    }
+
+    @Test
+    public void createEmployee() {
+        assertWithinBudget("EmployeeService.createEmployee", 201,
+                request("POST", "/user", login(ADMIN), JSON,
+                        employee("budget.single")));
+    }
+
+    @Test
+    public void createEmployees() {
+        assertWithinBudget("EmployeeService.createEmployees", 200,
+                request("POST", "/user/batch", login(ADMIN), JSON,
+                        "[" + employee("budget.batch1") + ","
+                        + employee("budget.batch2") + ","
+                        + employee(ADMIN) + "]"));
+    }
+
+    @Test
+    public void updateEmployee() {
+        assertWithinBudget("EmployeeService.updateEmployee", 201,
+                request("PUT", "/user/employees/1", login(ADMIN), JSON,
+                        "{\"password\":\"" + ADMIN + "\"}"));
+    }
+
+    @Test
+    public void deleteEmployee() {
+        String admin = login(ADMIN);
+        MockHttpResponse created = invoke(request("POST", "/user/batch",
+                admin, JSON, "[" + employee("budget.deleted") + "]"));
+        String href = new JsonParser().parse(content(created))
+                .getAsJsonArray().get(0).getAsJsonObject()
+                .get("href").getAsString();
+        String id = href.substring(href.lastIndexOf('/') + 1);
+        login("budget.deleted");
+        assertWithinBudget("EmployeeService.deleteEmployee", 200,
+                request("DELETE", "/user/delete/" + id, login(ADMIN)));
+    }
+
+    @Test
+    public void getTimesheet() {
+        String method = "TimesheetService.getTimesheet";
+        assertWithinBudget(method, 200,
+                request("GET", "/timesheet", login(EMPLOYEE)));
+        assertWithinBudget(method, 200,
+                request("GET", "/timesheet?limit=1", login(EMPLOYEE)));
+        assertWithinBudget(method, 200, request("GET",
+                "/timesheet?weekNumber=45&year=2018", login(EMPLOYEE)));
+        assertWithinBudget(method, 200, request("GET",
+                "/timesheet?fromWeek=40&toWeek=50&year=2018",
+                login(EMPLOYEE)));
+    }
+
+    @Test
+    public void getCurrentTimesheet() {
+        String token = login(EMPLOYEE);
+        invoke(request("PUT", "/timesheet", token, JSON,
+                "{\"timesheetRows\":[{" + ROW + "}]}"));
+        assertWithinBudget("TimesheetService.getCurrentTimesheet", 200,
+                request("GET", "/timesheet/current", login(EMPLOYEE)));
+    }
+
+    @Test
+    public void saveTimesheet() {
+        String method = "TimesheetService.saveTimesheet";
+        String uri = "/timesheet?weekNumber=10&year=2019";
+        MockHttpResponse saved = assertWithinBudget(method, 200,
+                request("PUT", uri, login(EMPLOYEE), JSON,
+                        "{\"timesheetRows\":[{" + ROW + "},{" + ROW + "}]}"));
+        JsonArray rows = new JsonParser().parse(content(saved))
+                .getAsJsonObject().getAsJsonArray("timesheetRows");
+        long first = rows.get(0).getAsJsonObject()
+                .get("timesheetRowId").getAsLong();
+        assertWithinBudget(method, 200, request("PUT", uri, login(EMPLOYEE),
+                JSON, "{\"timesheetRows\":[{\"timesheetRowId\":" + first
+                + "," + ROW.replace("\"n\"", "\"changed\"") + "},{" + ROW
+                + "}]}"));
+    }
+
+    @Test
+    public void updateTimesheetRow() {
+        assertWithinBudget("TimesheetService.updateTimesheetRow", 200,
+                request("PATCH", "/timesheet/row/11", login(EMPLOYEE), JSON,
+                        "{\"monday\":4,\"friday\":2}"));
+    }
+
+    @Test
+    public void importTimesheets() {
+        String method = "TimesheetService.importTimesheets";
+        assertWithinBudget(method, 200, request("POST", "/timesheet/import",
+                login(ADMIN), NDJSON,
+                "{\"employeeId\":2,\"yearWeek\":201920,\"timesheetRows\":[{"
+                + ROW + "}]}\n"
+                + "{\"employeeId\":3,\"yearWeek\":201920,\"timesheetRows\":[{"
+                + ROW + "}]}\n"));
+        assertWithinBudget(method, 200, request("POST", "/timesheet/import",
+                login(ADMIN), CSV,
+                "employeeId,yearWeek,projectId,workPackageId,monday,tuesday,"
+                + "wednesday,thursday,friday,saturday,sunday,notes\n"
+                + "2,201921,1,wp1,8,8,8,8,8,,,\"two\nlines\"\n"
+                + "2,201921,2,wp2,1,,,,,,,\n"
+                + "4,201921,1,wp1,8,8,8,8,8,0,0,\n"));
+    }
+
+    @Test
+    public void exportTimesheets() {
+        String method = "TimesheetService.exportTimesheets";
+        assertWithinBudget(method, 200, request("GET",
+                "/timesheet/export?from=201801&to=201952", login(ADMIN))
+                .accept(NDJSON));
+        assertWithinBudget(method, 200, request("GET",
+                "/timesheet/export?from=201801&to=201952", login(ADMIN))
+                .accept(CSV));
+    }
+
+    @Test
+    public void reports() {
+        String query = "?from=201801&to=201952";
+        assertWithinBudget("ReportService.getWeeklyHours", 200,
+                request("GET", "/report/hours/week" + query, login(ADMIN)));
+        assertWithinBudget("ReportService.getProjectHours", 200, request(
+                "GET", "/report/hours/project" + query, login(EMPLOYEE)));
+        assertWithinBudget("ReportService.getWorkPackageHours", 200,
+                request("GET", "/report/hours/workpackage" + query
+                        + "&employeeId=2", login(ADMIN)));
+    }
+
+    @Test
+    public void getMetrics() {
+        assertWithinBudget("MetricsService.getMetrics", 200,
+                request("GET", "/metrics", null));
+    }
+
+    /**
+     * serve a request and check its statements, entity loads and
+     * transactions against the budget of its resource method.
+     * @param endpoint resource class simple name and method name
+     * @param status expected status code
+     * @param request request
+     * @return response
+     */
+    private static MockHttpResponse assertWithinBudget(String endpoint,
+            int status, MockHttpRequest request) {
+        QueryBudget budget = budget(endpoint);
+        long statementsBefore = metric("http_request_statements_total",
+                endpoint);
+        long overBefore = metric("http_requests_over_query_budget_total",
+                endpoint);
+        Statistics statistics = TestApplication.statistics();
+        statistics.clear();
+        MockHttpResponse response = invoke(request);
+        long hibernateStatements = statistics.getPrepareStatementCount();
+        long collectionFetches = statistics.getCollectionFetchCount();
+        long entityLoads = statistics.getEntityLoadCount();
+        long transactions = statistics.getTransactionCount();
+        assertEquals(endpoint + ": " + content(response),
+                status, response.getStatus());
+        long statements = metric("http_request_statements_total", endpoint)
+                - statementsBefore;
+        assertTrue(endpoint + " ran " + statements
+                + " statements, over its budget of " + budget.value(),
+                statements <= budget.value());
+        assertEquals(endpoint + " counted over budget", overBefore,
+                metric("http_requests_over_query_budget_total", endpoint));
+        assertTrue(endpoint + " counted " + statements + " statements, "
+                + "Hibernate prepared " + hibernateStatements,
+                hibernateStatements <= statements);
+        assertEquals(endpoint + " loaded collections lazily", 0,
+                collectionFetches);
+        assertTrue(endpoint + " loaded " + entityLoads
+                + " entities, over its budget of " + budget.entityLoads(),
+                budget.entityLoads() < 0
+                || entityLoads <= budget.entityLoads());
+        assertTrue(endpoint + " began " + transactions
+                + " transactions, over its budget of " + budget.transactions(),
+                transactions <= budget.transactions());
+        return response;
+    }
+
+    /**
+     * get the query budget of a resource method.
+     * @param endpoint resource class simple name and method name
+     * @return budget
+     */
+    private static QueryBudget budget(String endpoint) {
+        String[] names = endpoint.split("\\.");
+        try {
+            for (Method method : Class.forName("com.webservice." + names[0])
+                    .getMethods()) {
+                QueryBudget budget = method.getAnnotation(QueryBudget.class);
+                if (method.getName().equals(names[1]) && budget != null) {
+                    return budget;
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException(endpoint, e);
+        }
+        throw new AssertionError(endpoint + " has no query budget");
+    }
+
+    /**
+     * read a counter of an endpoint from the metrics endpoint.
+     * @param name counter name
+     * @param endpoint resource class simple name and method name
+     * @return counter value, 0 if the endpoint was not called yet
+     */
+    private static long metric(String name, String endpoint) {
+        String metrics = content(invoke(request("GET", "/metrics", null)));
+        Matcher matcher = Pattern.compile("(?m)^" + name + "\\{endpoint=\""
+                + Pattern.quote(endpoint) + "\"\\} (\\d+)$").matcher(metrics);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    /**
+     * create the JSON of a new employee, whose password is its user name.
+     * @param userName user name
+     * @return employee JSON
+     */
+    private static String employee(String userName) {
+        return "{\"firstName\":\"Budget\",\"lastName\":\"Test\","
+                + "\"userName\":\"" + userName + "\",\"password\":\""
+                + userName + "\",\"isAdmin\":false}";
+    }
+}
@@ -0,0 +1,208 @@
+package com.qualifier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.EmbeddedDatabase;
+
+/**
+ * Runs the migrations on databases freshly created from db.sql, with the
+ * data they have to clean up first.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class SchemaMigratorTest {
+
+    private static final int MIGRATIONS = 6;
+
+    /** End weeks of the timesheets of known employees. */
+    private static final String END_WEEKS = "select group_concat(distinct"
+            + " endweek order by endweek) from timesheet"
+            + " where employeeid in (select employeeid from Employee)";
+
+    @Test
+    public void mergesDuplicateWeeks() throws Exception {
+        try (Connection connection =
+                EmbeddedDatabase.create("migration_duplicates");
+                Statement statement = connection.createStatement()) {
+            int timesheets = count(statement, "select count(*)"
+                    + " from timesheet where employeeid = 2");
+            statement.execute("insert into timesheet"
+                    + " (employeeid, endweek, startweek)"
+                    + " select employeeid, endweek, startweek"
+                    + " from timesheet where timesheetid = 3");
+            statement.execute("insert into timesheetrow (timesheetid,"
+                    + " projectid, workpackage, monday, notes)"
+                    + " values (last_insert_id(), 9, 'dup', 1, 'dup')");
+            statement.execute("insert into timesheet"
+                    + " (employeeid, endweek, startweek)"
+                    + " values (999, now(), now())");
+            statement.execute("insert into timesheetrow (timesheetid,"
+                    + " projectid, workpackage, monday, notes)"
+                    + " values (last_insert_id(), 9, 'orphan', 1, 'orphan')");
+            int rows = count(statement, "select count(*) from timesheetrow"
+                    + " r join timesheet t on t.timesheetid = r.timesheetid"
+                    + " where t.employeeid = 2");
+            String endWeeks = text(statement, END_WEEKS);
+
+            new SchemaMigrator().migrate(connection);
+
+            assertEquals(timesheets, count(statement, "select count(*)"
+                    + " from timesheet where employeeid = 2"));
+            assertEquals(rows, count(statement, "select count(*) from"
+                    + " timesheetrow r join timesheet t"
+                    + " on t.timesheetid = r.timesheetid"
+                    + " where t.employeeid = 2"));
+            assertEquals(0, count(statement, "select count(*) from"
+                    + " timesheetrow where workpackage = 'orphan'"));
+            assertEquals(endWeeks, text(statement, END_WEEKS));
+            assertInstalled(statement);
+        }
+    }
+
+    @Test
+    public void keepsTokenCreationDates() throws Exception {
+        try (Connection connection =
+                EmbeddedDatabase.create("migration_tokens");
+                Statement statement = connection.createStatement()) {
+            statement.execute("insert into token (token, employeeid,"
+                    + " datecreated, expirydate, isadmin, username,"
+                    + " isactive) values ('migrated', 2,"
+                    + " '2018-11-01 09:00:00', '2018-11-02 09:00:00', 0,"
+                    + " 'Cam.Lay123', 0)");
+
+            new SchemaMigrator().migrate(connection);
+
+            assertEquals("2018-11-01 09:00:00", text(statement,
+                    "select date_format(datecreated, '%Y-%m-%d %T')"
+                    + " from token"
+                    + " where tokenkey = unhex(left(sha2('migrated', 256),"
+                    + " 32))"));
+        }
+    }
+
+    @Test
+    public void concurrentInstancesMigrateOnce() throws Exception {
+        EmbeddedDatabase.create("migration_concurrent").close();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Void>> instances = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                instances.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws SQLException {
+                        try (Connection connection = EmbeddedDatabase
+                                .connect("migration_concurrent")) {
+                            new SchemaMigrator().migrate(connection);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> instance : instances) {
+                instance.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        try (Connection connection =
+                EmbeddedDatabase.connect("migration_concurrent");
+                Statement statement = connection.createStatement()) {
+            assertInstalled(statement);
+        }
+    }
+
+    @Test
+    public void stopsAtIncompleteMigration() throws Exception {
+        try (Connection connection =
+                EmbeddedDatabase.create("migration_pending");
+                Statement statement = connection.createStatement()) {
+            new SchemaMigrator().migrate(connection);
+            statement.execute("update schema_version set success = 0"
+                    + " where version = " + MIGRATIONS);
+            try {
+                new SchemaMigrator().migrate(connection);
+                fail("Migrated past an incomplete migration");
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith(
+                        "Migration V" + MIGRATIONS + "__"));
+            }
+        }
+    }
+
+    @Test
+    public void upgradesVersionTable() throws Exception {
+        try (Connection connection =
+                EmbeddedDatabase.create("migration_upgrade");
+                Statement statement = connection.createStatement()) {
+            statement.execute("create table schema_version ("
+                    + " version integer primary key,"
+                    + " script varchar(256),"
+                    + " installedon timestamp default current_timestamp)");
+            statement.execute("insert into schema_version (version, script)"
+                    + " values (0, 'baseline')");
+
+            new SchemaMigrator().migrate(connection);
+
+            assertEquals(MIGRATIONS + 1, count(statement,
+                    "select count(*) from schema_version where success = 1"));
+        }
+    }
+
+    /**
+     * check that every migration is recorded once, as installed.
+     * @param statement statement on the migrated database
+     * @throws SQLException on database error
+     */
+    private static void assertInstalled(Statement statement)
+            throws SQLException {
+        assertEquals(MIGRATIONS, count(statement,
+                "select count(*) from schema_version where success = 1"));
+        assertEquals(MIGRATIONS, count(statement,
+                "select count(*) from schema_version"));
+    }
+
+    /**
+     * run a query returning text.
+     * @param statement statement
+     * @param sql query returning a single value
+     * @return value as text
+     * @throws SQLException on database error
+     */
+    private static String text(Statement statement, String sql)
+            throws SQLException {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    /**
+     * run a count query.
+     * @param statement statement
+     * @param sql query returning a single number
+     * @return number
+     * @throws SQLException on database error
+     */
+    private static int count(Statement statement, String sql)
+            throws SQLException {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
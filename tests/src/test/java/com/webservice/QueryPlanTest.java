@@ -0,0 +1,199 @@
+package com.webservice;
+
+import static com.TestApplication.invoke;
+import static com.TestApplication.login;
+import static com.TestApplication.request;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ws.rs.core.MediaType;
+
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.EmbeddedDatabase;
+
+/**
+ * Checks the plans of the statements run by the services: none of them
+ * may read a whole table. The statements of a request are taken from the
+ * general query log of the server, with their parameters, and explained
+ * there, since binary token keys do not survive a round trip as text.
+ * A few thousand timesheets are added for an employee the requests do
+ * not touch, as the optimizer reads small tables whole whatever their
+ * indexes.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class QueryPlanTest {
+
+    private static final String ADMIN = "Test123Test123";
+
+    private static final String EMPLOYEE = "Cam.Lay123";
+
+    private static final String JSON = MediaType.APPLICATION_JSON;
+
+    private static final String ROW = "\"projectId\":1,"
+            + "\"workPackageId\":\"wp1\",\"monday\":8,\"notes\":\"n\"";
+
+    /** Statements worth explaining, on the tables of the application. */
+    private static final String EXPLAINED = "(?is)\\s*(select|update|delete)"
+            + "\\s.*\\b(employee|timesheet|timesheetrow|token)\\b.*";
+
+    /** Employee of db.sql whose timesheets fill the tables. */
+    private static final int FILLER_EMPLOYEE = 7;
+
+    private static final int FILLER_TIMESHEETS = 2000;
+
+    @BeforeClass
+    public static void logQueries() throws SQLException {
+        // deploys the application, which migrates the schema
+        login(ADMIN);
+        try (Connection connection = EmbeddedDatabase.connect();
+                Statement statement = connection.createStatement()) {
+            statement.execute("insert into timesheet"
+                    + " (employeeid, yearweek, startweek, endweek)"
+                    + " with recursive n (i) as (select 0 union all"
+                    + " select i + 1 from n where i < "
+                    + (FILLER_TIMESHEETS - 1) + ")"
+                    + " select " + FILLER_EMPLOYEE + ", 200001"
+                    + " + i div 52 * 100 + i mod 52, now(), now() from n");
+            statement.execute("insert into timesheetrow (timesheetid,"
+                    + " projectid, workpackage, monday, notes)"
+                    + " select t.timesheetid, p.projectid, 'filler', 1, ''"
+                    + " from timesheet t, (select 1 as projectid union all"
+                    + " select 2 union all select 3) p"
+                    + " where t.employeeid = " + FILLER_EMPLOYEE);
+            statement.execute("analyze table Employee, token, timesheet,"
+                    + " timesheetrow");
+            statement.execute("set global log_output = 'TABLE'");
+            statement.execute("set global general_log = 1");
+        }
+    }
+
+    @Test
+    public void tokens() throws SQLException {
+        assertNoFullScan(request("POST", "/registration", null, JSON,
+                "{\"userName\":\"Bruce.Link123\","
+                + "\"password\":\"Bruce.Link123\"}"));
+        assertNoFullScan(request("GET", "/timesheet/current",
+                login(EMPLOYEE)));
+    }
+
+    @Test
+    public void employees() throws SQLException {
+        assertNoFullScan(request("GET", "/user?limit=2", login(ADMIN)));
+        assertNoFullScan(request("GET", "/user/1", login(ADMIN)));
+        assertNoFullScan(request("POST", "/user/batch", login(ADMIN), JSON,
+                "[{\"firstName\":\"Plan\",\"lastName\":\"Test\","
+                + "\"userName\":\"plan.batch\",\"password\":\"plan.batch\","
+                + "\"isAdmin\":false}]"));
+    }
+
+    @Test
+    public void timesheets() throws SQLException {
+        assertNoFullScan(request("GET", "/timesheet?limit=1",
+                login(EMPLOYEE)));
+        assertNoFullScan(request("GET",
+                "/timesheet?fromWeek=40&toWeek=50&year=2018",
+                login(EMPLOYEE)));
+        assertNoFullScan(request("PUT", "/timesheet?weekNumber=11&year=2019",
+                login(EMPLOYEE), JSON, "{\"timesheetRows\":[{" + ROW
+                + "}]}"));
+        assertNoFullScan(request("PATCH", "/timesheet/row/11",
+                login(EMPLOYEE), JSON, "{\"monday\":4}"));
+        assertNoFullScan(request("POST", "/timesheet/import", login(ADMIN),
+                "application/x-ndjson", "{\"employeeId\":2,"
+                + "\"yearWeek\":201922,\"timesheetRows\":[{" + ROW + "}]}\n"));
+        assertNoFullScan(request("GET",
+                "/timesheet/export?from=201801&to=201952", login(ADMIN))
+                .accept("application/x-ndjson"));
+    }
+
+    @Test
+    public void reports() throws SQLException {
+        String query = "?from=201801&to=201952";
+        assertNoFullScan(request("GET", "/report/hours/week" + query,
+                login(ADMIN)));
+        assertNoFullScan(request("GET", "/report/hours/project" + query,
+                login(EMPLOYEE)));
+    }
+
+    /**
+     * serve a request and explain the statements it ran.
+     * @param request request
+     * @throws SQLException on database error
+     */
+    private static void assertNoFullScan(MockHttpRequest request)
+            throws SQLException {
+        try (Connection connection = EmbeddedDatabase.connect();
+                Statement statement = connection.createStatement()) {
+            statement.execute("truncate table mysql.general_log");
+            int status = invoke(request).getStatus();
+            assertTrue(request.getUri().getPath() + " returned " + status,
+                    status < 300);
+            statement.execute("create temporary table ran"
+                    + " (id integer auto_increment primary key,"
+                    + " statement mediumblob)");
+            statement.execute("insert into ran (statement)"
+                    + " select argument from mysql.general_log"
+                    + " where command_type = 'Query'"
+                    + " and thread_id <> connection_id()"
+                    + " order by event_time");
+            List<Integer> ids = new ArrayList<>();
+            List<String> texts = new ArrayList<>();
+            try (ResultSet rs = statement.executeQuery(
+                    "select id, statement from ran")) {
+                while (rs.next()) {
+                    String text = new String(rs.getBytes(2),
+                            StandardCharsets.ISO_8859_1);
+                    if (text.matches(EXPLAINED)) {
+                        ids.add(rs.getInt(1));
+                        texts.add(text);
+                    }
+                }
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                assertIndexed(connection, ids.get(i), texts.get(i));
+            }
+            statement.execute("drop temporary table ran");
+        }
+    }
+
+    /**
+     * explain a logged statement and check that no table is fully read.
+     * @param connection connection holding the logged statements
+     * @param id id of the statement
+     * @param text statement, for the failure message
+     * @throws SQLException on database error
+     */
+    private static void assertIndexed(Connection connection, int id,
+            String text) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "select concat('explain ', statement) into @explain"
+                + " from ran where id = ?")) {
+            ps.setInt(1, id);
+            ps.execute();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("prepare plan from @explain");
+            try (ResultSet rs = statement.executeQuery("execute plan")) {
+                while (rs.next()) {
+                    assertEquals("Full scan of " + rs.getString("table")
+                            + " by " + text, false,
+                            "ALL".equals(rs.getString("type")));
+                }
+            }
+            statement.execute("deallocate prepare plan");
+        }
+    }
+}
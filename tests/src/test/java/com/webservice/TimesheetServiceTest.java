@@ -0,0 +1,36 @@
+package com.webservice;
+
+import static com.TestApplication.invoke;
+import static com.TestApplication.login;
+import static com.TestApplication.request;
+import static org.junit.Assert.assertEquals;
+
+import javax.ws.rs.core.MediaType;
+
+import org.junit.Test;
+
+/**
+ * Checks the timesheet requests rejected before anything is written.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class TimesheetServiceTest {
+
+    private static final String EMPLOYEE = "Cam.Lay123";
+
+    private static final String URI = "/timesheet?weekNumber=12&year=2019";
+
+    @Test
+    public void saveWithoutBodyIsBadRequest() {
+        assertEquals(400, invoke(request("PUT", URI, login(EMPLOYEE),
+                MediaType.APPLICATION_JSON, "")).getStatus());
+    }
+
+    @Test
+    public void saveWithNullRowIsBadRequest() {
+        assertEquals(400, invoke(request("PUT", URI, login(EMPLOYEE),
+                MediaType.APPLICATION_JSON, "{\"timesheetRows\":[null,"
+                + "{\"projectId\":1,\"workPackageId\":\"wp1\"}]}"))
+                .getStatus());
+    }
+}
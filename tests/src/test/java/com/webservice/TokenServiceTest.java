@@ -0,0 +1,50 @@
+package com.webservice;
+
+import static com.TestApplication.login;
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Test;
+
+import com.EmbeddedDatabase;
+
+/**
+ * Checks the tokens written by a login.
+ * @author Sunguk Ham
+ * @version 1.0
+ */
+public class TokenServiceTest {
+
+    /** Employee of db.sql, and its id, not used by the other tests. */
+    private static final String EMPLOYEE = "Danny.Di.Iorio123";
+
+    private static final long EMPLOYEE_ID = 4;
+
+    private static final String CREATED = "2018-11-01 09:00:00";
+
+    @Test
+    public void loginKeepsCreationDateOfReplacedToken() throws SQLException {
+        login(EMPLOYEE);
+        try (Connection connection = EmbeddedDatabase.connect();
+                Statement statement = connection.createStatement()) {
+            statement.execute("update token set datecreated = '" + CREATED
+                    + "' where employeeid = " + EMPLOYEE_ID);
+            login(EMPLOYEE);
+            try (ResultSet rs = statement.executeQuery("select"
+                    + " date_format(datecreated, '%Y-%m-%d %T') from token"
+                    + " where employeeid = " + EMPLOYEE_ID
+                    + " and isactive = 0")) {
+                int replaced = 0;
+                while (rs.next()) {
+                    assertEquals(CREATED, rs.getString(1));
+                    replaced++;
+                }
+                assertEquals(1, replaced);
+            }
+        }
+    }
+}